@@ -0,0 +1,122 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.settings.GenerationRun;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of a fair semaphore: at most {@code limit} async tasks run at once,
+ * the rest wait as queued futures instead of parked threads.
+ */
+final class AsyncLimiter {
+
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int limit;
+    private int active;
+
+    AsyncLimiter(int limit) {
+        this.limit = Math.max(1, limit);
+    }
+
+    /**
+     * Starts {@code work} once a slot is free and keeps the slot until the returned future
+     * completes. A run cancelled while still queued never starts.
+     */
+    <T> CompletableFuture<T> submit(@Nullable GenerationRun run, @NotNull Supplier<CompletableFuture<T>> work) {
+        CompletableFuture<Void> permit = acquire();
+        Runnable unregister = run == null ? () -> {} : run.onCancel(() -> dropWaiter(permit));
+        // Hop to the pool: a slot may be handed over on the EDT or on an HTTP client thread
+        return permit.thenComposeAsync(ignored -> {
+            unregister.run();
+            CompletableFuture<T> task;
+            try {
+                if (run != null) run.checkCanceled();
+                task = work.get();
+            } catch (Throwable t) {
+                release();
+                return CompletableFuture.failedFuture(t);
+            }
+            return task.whenComplete((r, t) -> release());
+        }, AppExecutorUtil.getAppExecutorService());
+    }
+
+    synchronized int limit() {
+        return limit;
+    }
+
+    synchronized int waiting() {
+        return waiters.size();
+    }
+
+    /** Changes the number of slots. Shrinking never interrupts running tasks, it only delays new ones. */
+    void setLimit(int newLimit) {
+        synchronized (this) {
+            limit = Math.max(1, newLimit);
+        }
+        drain();
+    }
+
+    /** Fails every queued task; running ones are left alone. */
+    void cancelWaiting() {
+        List<CompletableFuture<Void>> dropped;
+        synchronized (this) {
+            dropped = new ArrayList<>(waiters);
+            waiters.clear();
+        }
+        for (CompletableFuture<Void> waiter : dropped) waiter.cancel(false);
+    }
+
+    private synchronized CompletableFuture<Void> acquire() {
+        if (active < limit && waiters.isEmpty()) {
+            active++;
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        return waiter;
+    }
+
+    private void release() {
+        synchronized (this) {
+            active--;
+        }
+        drain();
+    }
+
+    private void dropWaiter(CompletableFuture<Void> waiter) {
+        if (waiter.cancel(false)) {
+            synchronized (this) {
+                waiters.remove(waiter);
+            }
+        }
+    }
+
+    /** Hands free slots to queued tasks. Futures are completed outside the lock. */
+    private void drain() {
+        while (true) {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                if (active >= limit || (next = waiters.poll()) == null) return;
+                active++;
+            }
+            if (!next.complete(null)) {
+                // cancelled while queued – give the slot back and try the next one
+                synchronized (this) {
+                    active--;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.DTOs.BatchReport;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.psi.PsiClass;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Splits a batch across CI agents and merges their manifests again.
+ *
+ * Both strategies depend only on the classes themselves, never on the order they were collected
+ * in, so every agent computes the same partition from the same checkout:
+ *
+ *   • HASH → CRC32 of the qualified name modulo the shard count; a class stays on its shard
+ *            when others are added or removed
+ *   • SIZE → greedy longest-processing-time bin packing by PSI text length; shards finish at
+ *            about the same time, but a class may move when the code base changes
+ */
+public final class BatchSharding {
+
+    public enum Strategy { HASH, SIZE }
+
+    private BatchSharding() {}
+
+    /** Classes of shard {@code index} (0-based) out of {@code count}, in their original order. */
+    public static List<PsiClass> select(@NotNull List<PsiClass> classes, int index, int count, @NotNull Strategy strategy) {
+        if (index < 0 || index >= count) throw new IllegalArgumentException("Shard " + index + " outside 0.." + (count - 1));
+
+        List<String> fqns = new ArrayList<>();
+        Map<String, Integer> sizes = new TreeMap<>();
+        ReadAction.run(() -> {
+            for (PsiClass clazz : classes) {
+                String fqn = clazz.isValid() ? clazz.getQualifiedName() : null;
+                fqns.add(fqn);
+                if (fqn != null) sizes.putIfAbsent(fqn, clazz.getTextLength());
+            }
+        });
+
+        Set<String> mine = assign(sizes, index, count, strategy);
+
+        // keep the caller's order so the scheduler sees the same input shape as an unsharded run
+        List<PsiClass> selected = new ArrayList<>();
+        for (int i = 0; i < classes.size(); i++) {
+            if (mine.remove(fqns.get(i))) selected.add(classes.get(i));
+        }
+        return selected;
+    }
+
+    /** Qualified names of shard {@code index} among classes given by name and text length. */
+    static Set<String> assign(@NotNull Map<String, Integer> sizes, int index, int count, @NotNull Strategy strategy) {
+        Set<String> mine = new HashSet<>();
+        if (strategy == Strategy.HASH) {
+            for (String fqn : sizes.keySet()) {
+                if (hashShard(fqn, count) == index) mine.add(fqn);
+            }
+            return mine;
+        }
+        List<String> bySize = new ArrayList<>(sizes.keySet());
+        // biggest first; the name breaks ties so equal sizes land identically everywhere
+        bySize.sort(Comparator.comparing((String fqn) -> sizes.get(fqn)).reversed().thenComparing(Comparator.naturalOrder()));
+        long[] load = new long[count];
+        for (String fqn : bySize) {
+            int lightest = 0;
+            for (int shard = 1; shard < count; shard++) {
+                if (load[shard] < load[lightest]) lightest = shard;
+            }
+            load[lightest] += sizes.get(fqn);
+            if (lightest == index) mine.add(fqn);
+        }
+        return mine;
+    }
+
+    static int hashShard(String fqn, int count) {
+        CRC32 crc = new CRC32();
+        crc.update(fqn.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % count);
+    }
+
+    /**
+     * Combines shard manifests into one report. Counts and results are summed, duration is the
+     * slowest shard (shards run side by side). Shards missing from the input are listed in
+     * {@link BatchReport#missingShards} so a lost agent cannot pass as a green run.
+     */
+    public static BatchReport merge(@NotNull List<BatchReport> shards) {
+        BatchReport merged = new BatchReport();
+        Set<Integer> seen = new TreeSet<>();
+        Set<String> classes = new HashSet<>();
+        Integer count = null;
+        for (BatchReport shard : shards) {
+            if (shard.shardCount != null) {
+                if (count != null && !count.equals(shard.shardCount)) {
+                    throw new IllegalArgumentException("Manifests disagree on shard count: " + count + " vs " + shard.shardCount);
+                }
+                count = shard.shardCount;
+            }
+            if (shard.shardIndex != null && !seen.add(shard.shardIndex)) {
+                throw new IllegalArgumentException("Shard " + (shard.shardIndex + 1) + " given twice");
+            }
+            if (merged.project == null) merged.project = shard.project;
+            if (merged.shardStrategy == null) merged.shardStrategy = shard.shardStrategy;
+            merged.requested += shard.requested;
+            merged.succeeded += shard.succeeded;
+            merged.incomplete += shard.incomplete;
+            merged.failed += shard.failed;
+            merged.cancelled += shard.cancelled;
+            merged.durationMs = Math.max(merged.durationMs, shard.durationMs);
+            merged.results.addAll(shard.results);
+            for (String fqn : shard.assigned) {
+                if (!classes.add(fqn)) {
+                    throw new IllegalArgumentException(fqn + " assigned to more than one shard");
+                }
+                merged.assigned.add(fqn);
+            }
+        }
+        merged.shardCount = count;
+        if (count != null) {
+            for (int i = 0; i < count; i++) {
+                if (!seen.contains(i)) merged.missingShards.add(i);
+            }
+        }
+        return merged;
+    }
+}
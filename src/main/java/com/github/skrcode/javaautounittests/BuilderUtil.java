@@ -6,6 +6,7 @@ package com.github.skrcode.javaautounittests;
 
 import com.github.javaparser.JavaParser;
 import com.github.skrcode.javaautounittests.settings.ConsolePrinter;
+import com.github.skrcode.javaautounittests.settings.GenerationRun;
 import com.intellij.codeInsight.actions.ReformatCodeProcessor;
 import com.intellij.compiler.CompilerMessageImpl;
 import com.intellij.execution.ExecutionException;
@@ -42,10 +43,12 @@ import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.psi.*;
 import com.intellij.psi.codeStyle.CodeStyleManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -61,52 +64,46 @@ import static com.github.skrcode.javaautounittests.CUTUtil.expandAll;
  */
 public class BuilderUtil {
 
+    private static final long BUILD_TIMEOUT_SECONDS = 200;
+
     private BuilderUtil() {}
 
     // --- Run JUnit class silently and parse TeamCity output ---
-    public static String runJUnitClass(Project project, PsiFile psiFile) throws Exception {
-        AtomicReference<ExecutionEnvironment> envRef = new AtomicReference<>();
-
-        // Step 1: Build environment
-        ApplicationManager.getApplication().invokeAndWait(() -> {
-            JUnitConfigurationType configType = JUnitConfigurationType.getInstance();
-            RunnerAndConfigurationSettings settings =
-                    RunManager.getInstance(project).createConfiguration(
-                            "Test Verifier", configType.getConfigurationFactories()[0]);
-
-            JUnitConfiguration configuration = (JUnitConfiguration) settings.getConfiguration();
+    /**
+     * Starts the test class and completes once the test JVM terminates. Nothing waits on a
+     * thread in between; cancelling the run kills the test JVM.
+     */
+    public static CompletableFuture<String> runJUnitClassAsync(Project project, PsiFile psiFile, GenerationRun run) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        AtomicReference<ProcessHandler> handlerRef = new AtomicReference<>();
+
+        run.cancellable(result);
+        completeAfter(result, () -> result.completeExceptionally(
+                new Exception("Test Execution Timeout. Cannot run tests. Please fix IDE issues and retry.")));
+        result.whenComplete((r, t) -> {
+            ProcessHandler started = handlerRef.get();
+            if (t != null && started != null && !started.isProcessTerminated()) started.destroyProcess();
+        });
 
-            @Nullable Module module = ModuleUtil.findModuleForPsiElement(psiFile);
-            if (module != null) configuration.setModule(module);
+        // Track results
+        List<String> failedTests = Collections.synchronizedList(new ArrayList<>());
 
-            if (psiFile instanceof PsiJavaFile psiJavaFile && psiJavaFile.getClasses().length > 0) {
-                configuration.setMainClass(psiJavaFile.getClasses()[0]);
-            }
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (result.isDone()) return;
 
-            Executor executor = DefaultRunExecutor.getRunExecutorInstance();
+            // Step 1: Build environment
+            ExecutionEnvironment env;
             try {
-                envRef.set(ExecutionEnvironmentBuilder.create(executor, settings).build());
-            } catch (ExecutionException e) {
-                throw new RuntimeException(e);
+                env = createEnvironment(project, psiFile);
+            } catch (Exception e) {
+                result.complete("FAILED_TO_CREATE_ENV");
+                return;
             }
-        });
-
-        ExecutionEnvironment env = envRef.get();
-        if (env == null) return "FAILED_TO_CREATE_ENV";
-
-        CountDownLatch latch = new CountDownLatch(1);
 
-        // Track results
-        List<String> passedTests = new ArrayList<>();
-        List<String> failedTests = new ArrayList<>();
-        List<String> ignoredTests = new ArrayList<>();
-
-        // Step 2: Run configuration silently
-        ApplicationManager.getApplication().invokeAndWait(() -> {
+            // Step 2: Run configuration silently
             ProgramRunner<?> runner = ProgramRunner.getRunner(env.getExecutor().getId(), env.getRunProfile());
             if (runner == null) {
-                failedTests.add("NO_RUNNER_FOUND");
-                latch.countDown();
+                result.complete("NO_RUNNER_FOUND");
                 return;
             }
 
@@ -114,6 +111,8 @@ public class BuilderUtil {
                 runner.execute(env, descriptor -> {
                     ProcessHandler handler = descriptor.getProcessHandler();
                     if (handler != null) {
+                        handlerRef.set(handler);
+                        if (result.isDone()) handler.destroyProcess();
                         handler.addProcessListener(new ProcessAdapter() {
                             @Override
                             public void onTextAvailable(ProcessEvent event, Key outputType) {
@@ -139,36 +138,39 @@ public class BuilderUtil {
 
                             @Override
                             public void processTerminated(ProcessEvent event) {
-                                latch.countDown();
-                                // ✅ Refocus JAIPilot Console after tests finish
-                                ApplicationManager.getApplication().invokeLater(() -> {
-                                    ToolWindow toolWindow =
-                                            ToolWindowManager.getInstance(project).getToolWindow("JAIPilot Console");
-                                    if (toolWindow != null) {
-                                        toolWindow.show();
-                                    }
-                                });
+                                result.complete(joinLines(failedTests));
+                                refocusConsole(project);
                             }
                         });
                     } else {
-                        latch.countDown();
+                        result.complete(joinLines(failedTests));
                     }
                 });
             } catch (Exception e) {
                 failedTests.add("TEST_EXECUTION_ERROR: " + e.getMessage());
-                latch.countDown();
+                result.complete(joinLines(failedTests));
             }
         });
+        return result;
+    }
 
-        try {
-            if (!latch.await(200, TimeUnit.SECONDS)) {
-                throw new Exception("Test Execution Timeout. Cannot run tests. Please fix IDE issues and retry.");
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new Exception("Test Execution Interrupted. Cannot run tests. Please fix and retry.");
+    private static ExecutionEnvironment createEnvironment(Project project, PsiFile psiFile) throws ExecutionException {
+        JUnitConfigurationType configType = JUnitConfigurationType.getInstance();
+        RunnerAndConfigurationSettings settings =
+                RunManager.getInstance(project).createConfiguration(
+                        "Test Verifier", configType.getConfigurationFactories()[0]);
+
+        JUnitConfiguration configuration = (JUnitConfiguration) settings.getConfiguration();
+
+        @Nullable Module module = ModuleUtil.findModuleForPsiElement(psiFile);
+        if (module != null) configuration.setModule(module);
+
+        if (psiFile instanceof PsiJavaFile psiJavaFile && psiJavaFile.getClasses().length > 0) {
+            configuration.setMainClass(psiJavaFile.getClasses()[0]);
         }
-        return joinLines(failedTests);
+
+        Executor executor = DefaultRunExecutor.getRunExecutorInstance();
+        return ExecutionEnvironmentBuilder.create(executor, settings).build();
     }
 
     private static String extractAttr(String line, String key) {
@@ -180,53 +182,57 @@ public class BuilderUtil {
     }
 
     // --- Compile JUnit class silently ---
-    public static String compileJUnitClass(Project project, Ref<PsiFile> testFile) {
-        CountDownLatch latch = new CountDownLatch(1);
-        StringBuilder result = new StringBuilder();
-        try {
-            VirtualFile file = testFile.get().getVirtualFile();
-
-            ApplicationManager.getApplication().invokeAndWait(() -> {
+    /** Compiles the test class; completes from the compiler callback instead of a waiting thread. */
+    public static CompletableFuture<String> compileJUnitClassAsync(Project project, Ref<PsiFile> testFile, GenerationRun run) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        run.cancellable(result);
+        completeAfter(result, () -> result.complete("COMPILATION_TIMEOUT"));
+
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (result.isDone()) return;
+            try {
+                VirtualFile file = testFile.get().getVirtualFile();
                 CompilerManager.getInstance(project).compile(new VirtualFile[]{file}, (aborted, errors, warnings, context) -> {
+                    StringBuilder output = new StringBuilder();
                     if (aborted) {
-                        result.append("COMPILATION_ABORTED");
+                        output.append("COMPILATION_ABORTED");
                     } else if (errors > 0) {
-                        result.append("COMPILATION_FAILED\n");
+                        output.append("COMPILATION_FAILED\n");
                         for (CompilerMessage msg : context.getMessages(CompilerMessageCategory.ERROR)) {
                             int line = ((CompilerMessageImpl) msg).getLine();
                             String codeLine = (line > 0)
                                     ? getLineFromVirtualFile(project, msg.getVirtualFile(), line)
                                     : "<unknown>";
-                            result.append("Error at line " + line + ": " + codeLine + "\n" + msg.getMessage())
+                            output.append("Error at line " + line + ": " + codeLine + "\n" + msg.getMessage())
                                     .append("\n\n");
                         }
                     }
-                    latch.countDown();
-                    // ✅ Refocus JAIPilot Console after compile finishes
-                    ApplicationManager.getApplication().invokeLater(() -> {
-                        ToolWindow toolWindow =
-                                ToolWindowManager.getInstance(project).getToolWindow("JAIPilot Console");
-                        if (toolWindow != null) {
-                            toolWindow.show();
-                        }
-                    });
+                    result.complete(output.toString().trim());
+                    refocusConsole(project);
                 });
-            });
-
-            try {
-                if (!latch.await(200, TimeUnit.SECONDS)) {
-                    result.append("COMPILATION_TIMEOUT");
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                result.append("COMPILATION_INTERRUPTED");
+            } catch (Exception e) {
+                result.complete("Test Class not found");
             }
-        }
-        catch (Exception e) {
-            result.append("Test Class not found");
-        }
+        });
+        return result;
+    }
+
+    /** Applies the compile / test-run wall-clock limit without a thread sitting on it. */
+    private static void completeAfter(CompletableFuture<String> result, Runnable onTimeout) {
+        ScheduledFuture<?> timer = AppExecutorUtil.getAppScheduledExecutorService()
+                .schedule(onTimeout, BUILD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        result.whenComplete((r, t) -> timer.cancel(false));
+    }
 
-        return result.toString().trim();
+    // ✅ Refocus JAIPilot Console after compile / test run finishes
+    private static void refocusConsole(Project project) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            ToolWindow toolWindow =
+                    ToolWindowManager.getInstance(project).getToolWindow("JAIPilot Console");
+            if (toolWindow != null) {
+                toolWindow.show();
+            }
+        });
     }
 
     private static String getLineFromVirtualFile(Project project, VirtualFile file, int lineNumber) {
@@ -263,6 +269,33 @@ public class BuilderUtil {
                                                 String classSkeleton,
                                                 List<TestMethod> methods,
                                                 ConsoleView myConsole) {
+        return writeTestClass(project, testFile, packageDir, testFileName, classSkeleton, methods, myConsole, true);
+    }
+
+    /**
+     * Merges methods that arrived while the model is still responding, with the same add / replace /
+     * delete rules. The composed class is not echoed; callers print just the new methods.
+     */
+    @Nullable
+    public static String mergeStreamedMethods(Project project,
+                                              Ref<PsiFile> testFile,
+                                              PsiDirectory packageDir,
+                                              String testFileName,
+                                              @Nullable String classSkeleton,
+                                              List<TestMethod> methods,
+                                              ConsoleView myConsole) {
+        return writeTestClass(project, testFile, packageDir, testFileName, classSkeleton, methods, myConsole, false);
+    }
+
+    @Nullable
+    private static String writeTestClass(Project project,
+                                         Ref<PsiFile> testFile,
+                                         PsiDirectory packageDir,
+                                         String testFileName,
+                                         String classSkeleton,
+                                         List<TestMethod> methods,
+                                         ConsoleView myConsole,
+                                         boolean announce) {
 
         PsiFile existingFile = ReadAction.compute(testFile::get);
         boolean hasExisting = existingFile != null && existingFile.isValid();
@@ -402,8 +435,10 @@ public class BuilderUtil {
                 }
 
                 // ✅ Step 5: Log + set return value
-                ConsolePrinter.success(myConsole, "✅ Test class composed and written successfully");
-                ConsolePrinter.codeBlock(myConsole, Arrays.asList(finalTestSource));
+                if (announce) {
+                    ConsolePrinter.success(myConsole, "✅ Test class composed and written successfully");
+                    ConsolePrinter.codeBlock(myConsole, Arrays.asList(finalTestSource));
+                }
                 finalSourceRef.set(finalTestSource);
 
             } catch (Throwable t) {
@@ -4,15 +4,27 @@
 
 package com.github.skrcode.javaautounittests;
 
+import com.github.skrcode.javaautounittests.DTOs.GenerationResult;
+import com.github.skrcode.javaautounittests.settings.AISettings;
+import com.github.skrcode.javaautounittests.settings.ConsolePrinter;
+import com.github.skrcode.javaautounittests.settings.GenerationQueueState;
+import com.github.skrcode.javaautounittests.settings.GenerationRun;
 import com.github.skrcode.javaautounittests.settings.JAIPilotConsoleManager;
+import com.github.skrcode.javaautounittests.settings.JAIPilotHttpService;
+import com.github.skrcode.javaautounittests.settings.JAIPilotExecutionManager;
+import com.github.skrcode.javaautounittests.settings.telemetry.Telemetry;
 import com.intellij.execution.ui.ConsoleView;
 import com.intellij.execution.ui.ConsoleViewContentType;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.psi.PsiClass;
@@ -20,13 +32,28 @@ import com.intellij.psi.PsiDirectory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Spins up a background task that iterates over classes sequentially.
+ * Spins up one background task per selection and fans its classes out as async generation
+ * sessions. Every class gets its own console tab and its own conversation state.
  */
 public final class BulkGeneratorService {
 
-    public static void enqueue(Project project, PsiClass clazz, @Nullable PsiDirectory testRoot) {
-        String tabTitle = ReadAction.compute(() -> clazz.isValid() ? clazz.getName() : "<invalid>");
+    private static final Logger LOG = Logger.getInstance(BulkGeneratorService.class);
+
+    private BulkGeneratorService() {}
+
+    public static void enqueue(Project project, List<PsiClass> classes, @Nullable PsiDirectory testRoot) {
+        if (classes.isEmpty()) return;
+        String title = classes.size() == 1 ? tabTitle(classes.get(0)) : classes.size() + " classes";
+
+        // Persist the batch first so an IDE restart can pick it up again
+        recordQueued(project, classes, testRoot);
 
         ApplicationManager.getApplication().invokeLater(() -> {
             // Ensure tool window is visible
@@ -35,58 +62,192 @@ public final class BulkGeneratorService {
                 toolWindow.show();
             }
 
-            // Create new console tab on EDT
-            ConsoleView console = JAIPilotConsoleManager.openNewConsole(project, tabTitle);
-            JAIPilotConsoleManager.print(console,
-                    "\n━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n" +
-                            " 🚀 JAIPilot Test Generation\n" +
-                            " Class: " + tabTitle + "\n" +
-                            "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n",
-                    ConsoleViewContentType.SYSTEM_OUTPUT);
-
             ProgressManager.getInstance().run(new Task.Backgroundable(
                     project,
-                    "Generating tests for " + tabTitle,
+                    "Generating tests for " + title,
                     true
             ) {
+                private List<GenerationResult> results = List.of();
+
                 @Override
                 public void run(@NotNull ProgressIndicator indicator) {
-                    if (indicator.isCanceled()) return;
-
-                    String qName = ReadAction.compute(() ->
-                            clazz.isValid() ? clazz.getQualifiedName() : "<invalid>");
-
-                    ApplicationManager.getApplication().invokeLater(() ->
-                            JAIPilotConsoleManager.print(console,
-                                    "⚙️ Processing " + qName,
-                                    ConsoleViewContentType.NORMAL_OUTPUT)
-                    );
-
-                    TestGenerationWorker.process(project, clazz, console, testRoot, indicator);
+                    results = runBatch(project, classes, testRoot, indicator, AISettings.getInstance().getMaxParallelClasses());
                 }
 
                 @Override
-                public void onCancel() {
-                    ApplicationManager.getApplication().invokeLater(() ->
-                            JAIPilotConsoleManager.print(console,
-                                    "❌ JAIPilot generation cancelled by user.",
-                                    ConsoleViewContentType.ERROR_OUTPUT)
-                    );
+                public void onSuccess() {
+                    report(project, classes.size(), results);
                 }
+            });
+        });
+    }
 
-                @Override
-                public void onSuccess() {
-//                    ApplicationManager.getApplication().invokeLater(() -> {
-//                        JAIPilotConsoleManager.print(console,
-//                                "✅ All tests generated successfully!",
-//                                ConsoleViewContentType.SYSTEM_OUTPUT);
+    /** Adds the classes to the persisted {@link GenerationQueueState} as pending. */
+    static void recordQueued(Project project, List<PsiClass> classes, @Nullable PsiDirectory testRoot) {
+        List<String> fqns = ReadAction.compute(() -> classes.stream()
+                .filter(PsiClass::isValid)
+                .map(PsiClass::getQualifiedName)
+                .filter(Objects::nonNull)
+                .toList());
+        GenerationQueueState.getInstance(project).enqueue(fqns, testRoot == null ? null : testRoot.getVirtualFile().getPath());
+    }
 
+    /**
+     * Processes the classes in {@link GenerationScheduler} order with at most
+     * {@code maxParallel} LLM jobs in flight (fewer while the
+     * {@link ConcurrencyController} sees pressure), overlapping them with local compile/run
+     * through a {@link GenerationPipeline}. Classes wait as futures, not threads; only
+     * the calling thread blocks, until all classes are done or the indicator is cancelled.
+     */
+    static List<GenerationResult> runBatch(Project project, List<PsiClass> classes, @Nullable PsiDirectory testRoot,
+                                           @NotNull ProgressIndicator indicator, int maxParallel) {
+        int total = classes.size();
+        // Connect while the classes are being ordered, not on the first class's critical path
+        JAIPilotHttpService.getInstance().warmUp();
+        ConsoleView batchConsole = total > 1 ? openBatchConsole(project, total) : null;
+        GenerationPipeline pipeline = new GenerationPipeline(
+                Math.min(maxParallel, total),
+                AISettings.getInstance().isAdaptiveConcurrency(),
+                decision -> ConsolePrinter.system(batchConsole, decision));
+        long start = System.nanoTime();
+        if (total > 1) Telemetry.bulkStart(total);
+
+        List<GenerationResult> results = new CopyOnWriteArrayList<>();
+        AtomicInteger finished = new AtomicInteger();
+        List<CompletableFuture<GenerationResult>> futures = new ArrayList<>();
+
+        indicator.setIndeterminate(total == 1);
+        indicator.setText2("Ordering " + total + " classes");
+        GenerationScheduler scheduler = GenerationScheduler.create(project, classes, pipeline::remoteWidth);
+        for (PsiClass clazz : scheduler.ordered()) {
+            futures.add(pipeline.admit(() -> generateOne(project, clazz, testRoot, pipeline, indicator))
+                    .thenApply(result -> {
+                        results.add(result);
+                        scheduler.recordFinished(clazz, result.durationMs);
+                        int done = finished.incrementAndGet();
+                        indicator.setFraction((double) done / total);
+                        indicator.setText2(done + " / " + total + " classes processed"
+                                + (done < total ? " · ETA " + GenerationScheduler.formatDuration(scheduler.estimateRemainingMillis()) : ""));
+                        return result;
+                    }));
+        }
+
+        try {
+            awaitDone(CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)), indicator);
+        } finally {
+            if (indicator.isCanceled()) {
+                // Drops classes that never started and wakes the running ones
+                pipeline.cancelWaiting();
+                for (GenerationRun run : JAIPilotExecutionManager.activeRuns()) run.cancelIfParentCancelled();
+            }
+        }
+
+        if (total > 1) {
+            long ok = results.stream().filter(GenerationResult::isSucceeded).count();
+            Telemetry.bulkDone((int) ok, (System.nanoTime() - start) / 1_000_000);
+            ConsolePrinter.success(batchConsole, ok + " / " + total + " classes generated in "
+                    + GenerationScheduler.formatDuration((System.nanoTime() - start) / 1_000_000));
+        }
+        JAIPilotConsoleManager.finish(batchConsole);
+        return results;
+    }
 
-//                    });
-                }
-            });
+    /** Batch-level tab: concurrency decisions and the final tally, next to the per-class tabs. */
+    private static @Nullable ConsoleView openBatchConsole(Project project, int total) {
+        Ref<ConsoleView> console = new Ref<>();
+        ApplicationManager.getApplication().invokeAndWait(() ->
+                console.set(JAIPilotConsoleManager.openNewConsole(project, "Batch · " + total + " classes", null)));
+        return console.get();
+    }
+
+    private static CompletableFuture<GenerationResult> generateOne(Project project, PsiClass clazz, @Nullable PsiDirectory testRoot,
+                                                                   GenerationPipeline pipeline, ProgressIndicator indicator) {
+        String tabTitle = tabTitle(clazz);
+        String qName = ReadAction.compute(() -> clazz.isValid() ? clazz.getQualifiedName() : "<invalid>");
 
+        GenerationRun run = JAIPilotExecutionManager.start(qName, indicator);
+        GenerationQueueState queue = GenerationQueueState.getInstance(project);
+        queue.markInProgress(qName);
+
+        // Tabs are opened lazily, when the class is admitted, so hundreds of queued classes do not flood the tool window
+        CompletableFuture<ConsoleView> consoleFuture = new CompletableFuture<>();
+        ApplicationManager.getApplication().invokeLater(() -> {
+            try {
+                ConsoleView console = JAIPilotConsoleManager.openNewConsole(project, tabTitle, run);
+                JAIPilotConsoleManager.print(console,
+                        "\n━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n" +
+                                " 🚀 JAIPilot Test Generation\n" +
+                                " Class: " + tabTitle + "\n" +
+                                "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n",
+                        ConsoleViewContentType.SYSTEM_OUTPUT);
+                JAIPilotConsoleManager.print(console, "⚙️ Processing " + qName, ConsoleViewContentType.NORMAL_OUTPUT);
+                consoleFuture.complete(console);
+            } catch (Throwable t) {
+                consoleFuture.completeExceptionally(t);
+            }
         });
+
+        return consoleFuture
+                .thenCompose(console -> TestGenerationWorker.processAsync(project, clazz, console, testRoot, pipeline, run)
+                        .thenApply(result -> {
+                            if (result.status == GenerationResult.Status.CANCELLED) {
+                                ConsolePrinter.error(console, "JAIPilot generation cancelled by user.");
+                            }
+                            return result;
+                        }))
+                .exceptionally(t -> {
+                    LOG.warn("JAIPilot generation failed for " + qName, t);
+                    GenerationResult.Status status = GenerationRun.isCancellation(t)
+                            ? GenerationResult.Status.CANCELLED
+                            : GenerationResult.Status.FAILED;
+                    return new GenerationResult(tabTitle, status, 0, 0, GenerationRun.unwrap(t).getMessage());
+                })
+                .whenComplete((result, t) -> {
+                    result.classFqn = qName;
+                    queue.complete(qName, result, run.isCancelledByUser());
+                    JAIPilotExecutionManager.finish(run);
+                    JAIPilotConsoleManager.finish(consoleFuture.getNow(null));
+                });
+    }
+
+    private static void awaitDone(CompletableFuture<?> batch, ProgressIndicator indicator) {
+        while (true) {
+            indicator.checkCanceled();
+            try {
+                batch.get(200, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException ignored) {
+                // keep polling the indicator
+            } catch (CancellationException e) {
+                return;
+            } catch (ExecutionException e) {
+                LOG.warn("JAIPilot worker failed", e.getCause());
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProcessCanceledException(e);
+            }
+        }
+    }
+
+    private static void report(Project project, int total, List<GenerationResult> results) {
+        long ok = results.stream().filter(GenerationResult::isSucceeded).count();
+        List<GenerationResult> failed = results.stream()
+                .filter(r -> r.status == GenerationResult.Status.FAILED)
+                .toList();
+
+        if (total == 1 && !failed.isEmpty()) {
+            Messages.showErrorDialog(failed.get(0).message, "Error. Please retry in a few minutes.");
+            return;
+        }
+        if (ok == 0 && failed.isEmpty()) return;
+
+        TestGenerationWorker.notifyGenerated(project, total == 1
+                ? "All tests generated!"
+                : "Tests generated for " + ok + " of " + total + " classes" + (failed.isEmpty() ? "" : " (" + failed.size() + " failed)"));
     }
 
+    private static String tabTitle(PsiClass clazz) {
+        return ReadAction.compute(() -> clazz.isValid() ? clazz.getName() : "<invalid>");
+    }
 }
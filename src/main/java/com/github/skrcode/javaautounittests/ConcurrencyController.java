@@ -0,0 +1,132 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * AIMD controller for the number of LLM jobs a batch keeps in flight.
+ *
+ *   • additive increase      → +1 after a full window of clean jobs (one per current slot)
+ *   • multiplicative decrease → halve on backend pressure: 429, each retry after a 5xx or network
+ *                               error, failed requests, or job latency well above the best seen in
+ *                               this batch (answers replayed from the cache do not count)
+ *   • local back-pressure    → no increase while classes queue for compile/run, halve when
+ *                               more classes wait to build than there are LLM slots
+ *
+ * The configured parallelism is the ceiling; the controller starts at half of it. After a
+ * decrease it ignores further pressure for one typical job latency, since jobs already in flight
+ * were admitted under the old limit.
+ */
+final class ConcurrencyController {
+
+    private static final double EWMA_ALPHA = 0.3;
+    private static final double SLOW_FACTOR = 2.5;
+    private static final long MIN_COOLDOWN_MS = 10_000;
+
+    private final int ceiling;
+    private final boolean adaptive;
+    private final IntConsumer applyLimit;
+    private final Consumer<String> log;
+
+    private int limit;
+    private int cleanInWindow;
+    private double latencyEwmaMs;
+    private double bestLatencyEwmaMs = Double.MAX_VALUE;
+    private double localEwmaMs;
+    private long cooldownUntil;
+
+    /**
+     * @param applyLimit receives every new limit (and the initial one, synchronously)
+     * @param log        human readable decisions, shown in the batch console
+     */
+    ConcurrencyController(int ceiling, boolean adaptive, @NotNull IntConsumer applyLimit, @NotNull Consumer<String> log) {
+        this.ceiling = Math.max(1, ceiling);
+        this.adaptive = adaptive && this.ceiling > 1;
+        this.applyLimit = applyLimit;
+        this.log = log;
+        this.limit = this.adaptive ? Math.max(1, this.ceiling / 2) : this.ceiling;
+        applyLimit.accept(limit);
+        if (this.adaptive) {
+            log.accept("Adaptive concurrency: starting with " + limit + " of max " + this.ceiling + " parallel LLM jobs");
+        }
+    }
+
+    synchronized int limit() {
+        return limit;
+    }
+
+    /** A job answered normally. */
+    void onRemoteSuccess(long latencyMs, int localQueueDepth) {
+        String decision;
+        synchronized (this) {
+            latencyEwmaMs = latencyEwmaMs == 0 ? latencyMs : EWMA_ALPHA * latencyMs + (1 - EWMA_ALPHA) * latencyEwmaMs;
+            bestLatencyEwmaMs = Math.min(bestLatencyEwmaMs, latencyEwmaMs);
+            if (!adaptive) return;
+
+            if (latencyEwmaMs > SLOW_FACTOR * bestLatencyEwmaMs) {
+                decision = decrease("LLM latency " + seconds(latencyEwmaMs) + " vs best " + seconds(bestLatencyEwmaMs));
+                // re-baseline: a lasting shift (bigger classes later in the batch) must not pin us at 1
+                if (decision != null) bestLatencyEwmaMs = latencyEwmaMs;
+            } else if (localQueueDepth > limit) {
+                decision = decrease(localQueueDepth + " classes waiting for compile/run");
+            } else if (localQueueDepth > 0) {
+                cleanInWindow = 0; // builds are the bottleneck – more LLM jobs would only queue up
+                decision = null;
+            } else if (++cleanInWindow >= limit && limit < ceiling) {
+                decision = change(limit + 1, limit + " clean LLM jobs, latency " + seconds(latencyEwmaMs)
+                        + ", build " + seconds(localEwmaMs));
+            } else {
+                decision = null;
+            }
+        }
+        if (decision != null) publish(decision);
+    }
+
+    /** The backend pushed back (rate limit, gateway timeout, server error) or the request failed outright. */
+    void onRemotePressure(@NotNull String reason) {
+        String decision;
+        synchronized (this) {
+            if (!adaptive) return;
+            decision = decrease(reason);
+        }
+        if (decision != null) publish(decision);
+    }
+
+    /** Duration of a compile + run, for the decision log. */
+    synchronized void onLocalDone(long durationMs) {
+        localEwmaMs = localEwmaMs == 0 ? durationMs : EWMA_ALPHA * durationMs + (1 - EWMA_ALPHA) * localEwmaMs;
+    }
+
+    private String decrease(String reason) {
+        long now = System.currentTimeMillis();
+        if (now < cooldownUntil || limit == 1) return null;
+        cooldownUntil = now + Math.max(MIN_COOLDOWN_MS, (long) latencyEwmaMs);
+        return change(Math.max(1, limit / 2), reason);
+    }
+
+    private String change(int newLimit, String reason) {
+        int old = limit;
+        limit = newLimit;
+        cleanInWindow = 0;
+        return "Concurrency " + old + " → " + newLimit + ": " + reason;
+    }
+
+    private void publish(String decision) {
+        int current;
+        synchronized (this) {
+            current = limit;
+        }
+        applyLimit.accept(current);
+        log.accept(decision);
+    }
+
+    private static String seconds(double millis) {
+        return Math.round(millis / 1000) + "s";
+    }
+}
@@ -0,0 +1,207 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.skrcode.javaautounittests.DTOs.Content;
+import com.github.skrcode.javaautounittests.settings.AISettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Keeps one class's model requests under a token budget, see {@link AISettings#getContextBudgetTokens()}.
+ *
+ * The conversation only grows – plans, fetched dependencies, model output, compile and test logs –
+ * so without a limit large classes run into the backend's size cap and every attempt gets slower
+ * and more expensive. Each entry has a {@link Kind}; when a request is over budget, entries are
+ * reduced from the lowest priority up, oldest first within a kind:
+ *
+ *   1. shortened → long text keeps its head, a previous tool call loses its arguments
+ *   2. dropped   → replaced by a one-line note saying what was left out
+ *
+ * The CUT source, the current test class and the test plan are never touched, so a request may
+ * still end up over budget.
+ *
+ * Reductions are memoized per original entry: later attempts send the very same objects, which
+ * keeps the response cache hitting and lets {@link JAIPilotLLM.Conversation} upload only the delta.
+ */
+final class ContextBudgetManager {
+
+    /** Highest priority first. */
+    enum Kind {
+        CUT,
+        TEST_SOURCE,
+        PLAN,
+        ERRORS,
+        EXISTING_TEST,
+        MODEL_OUTPUT,
+        DEPENDENCY;
+
+        boolean reducible() {
+            return ordinal() > PLAN.ordinal();
+        }
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int SHORTENED_CHARS = 2_000;
+    private static final int SHORTENED_ERROR_CHARS = 4_000; // compile errors come first, keep a few more of them
+
+    private final int budgetTokens;
+    private final Map<Content, Kind> kinds = new IdentityHashMap<>();
+    private final Map<Content, String> labels = new IdentityHashMap<>();
+    private final Map<Content, Integer> estimates = new IdentityHashMap<>();
+    private final Map<Content, Content> shortened = new IdentityHashMap<>();
+    private final Map<Content, Content> dropped = new IdentityHashMap<>();
+    private final Set<String> droppedLabels = new HashSet<>();
+
+    /** What {@link #fit} did to the last request. */
+    record Fit(List<Content> request, int tokensBefore, int tokensAfter, int shortened, int dropped) {
+        boolean reduced() {
+            return shortened > 0 || dropped > 0;
+        }
+    }
+
+    /** {@code budgetTokens <= 0} disables the budget. */
+    ContextBudgetManager(int budgetTokens) {
+        this.budgetTokens = budgetTokens;
+    }
+
+    /** Records what {@code content} is; returns it for inline use. */
+    Content tag(@NotNull Content content, @NotNull Kind kind) {
+        return tag(content, kind, null);
+    }
+
+    /** Same, with a label (e.g. the fetched file) for the note that replaces it when dropped. */
+    Content tag(@NotNull Content content, @NotNull Kind kind, @Nullable String label) {
+        kinds.put(content, kind);
+        if (label != null) labels.put(content, label);
+        return content;
+    }
+
+    /** Whether the entry with this label was dropped, e.g. so a file may be fetched again. */
+    boolean wasDropped(@NotNull String label) {
+        return droppedLabels.contains(label);
+    }
+
+    /** The request to send instead of {@code contents}: the same entries, reduced until under budget. */
+    Fit fit(@NotNull List<Content> contents) {
+        List<Content> request = new ArrayList<>(contents);
+        int before = 0;
+        for (Content content : request) before += tokens(content);
+        if (budgetTokens <= 0 || before <= budgetTokens) return new Fit(request, before, before, 0, 0);
+
+        // Lowest priority first, oldest first within a kind
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < request.size(); i++) {
+            if (kindOf(request.get(i), i).reducible()) order.add(i);
+        }
+        order.sort(Comparator.comparing((Integer i) -> kindOf(contents.get(i), i)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+
+        int total = before;
+        int shortenedCount = 0;
+        int droppedCount = 0;
+        for (int pass = 0; pass < 2 && total > budgetTokens; pass++) {
+            for (int i : order) {
+                if (total <= budgetTokens) break;
+                Content original = contents.get(i);
+                Content current = request.get(i);
+                Content reduced = pass == 0 ? shorten(original, kindOf(original, i)) : drop(original, kindOf(original, i));
+                if (tokens(reduced) >= tokens(current)) continue;
+                total += tokens(reduced) - tokens(current);
+                request.set(i, reduced);
+                if (pass == 0) {
+                    shortenedCount++;
+                } else {
+                    droppedCount++;
+                    if (current != original) shortenedCount--; // counted once, as dropped
+                    String label = labels.get(original);
+                    if (label != null) droppedLabels.add(label);
+                }
+            }
+        }
+        return new Fit(request, before, total, shortenedCount, droppedCount);
+    }
+
+    // --- internals ---
+
+    /** Untagged entries, e.g. restored from a checkpoint, are classified by shape. */
+    private Kind kindOf(Content content, int index) {
+        Kind kind = kinds.get(content);
+        if (kind != null) return kind;
+        if (index == 0) return Kind.CUT;
+        List<Content.Part> parts = content.getParts() == null ? List.of() : content.getParts();
+        if (parts.stream().anyMatch(p -> p.getFunctionResponse() != null)) return Kind.PLAN;
+        if ("model".equals(content.getRole())) {
+            return parts.stream().anyMatch(p -> p.getFunctionCall() != null) ? Kind.MODEL_OUTPUT : Kind.TEST_SOURCE;
+        }
+        return Kind.DEPENDENCY;
+    }
+
+    private int tokens(Content content) {
+        return estimates.computeIfAbsent(content, c -> {
+            int chars = 0;
+            if (c.getParts() != null) {
+                for (Content.Part part : c.getParts()) {
+                    chars += 16; // part framing
+                    if (part.getText() != null) chars += part.getText().length();
+                    if (part.getFunctionCall() != null) chars += json(part.getFunctionCall()).length();
+                    if (part.getFunctionResponse() != null) chars += json(part.getFunctionResponse()).length();
+                }
+            }
+            return chars / CHARS_PER_TOKEN + 1;
+        });
+    }
+
+    private Content shorten(Content original, Kind kind) {
+        return shortened.computeIfAbsent(original, c -> {
+            int keep = kind == Kind.ERRORS ? SHORTENED_ERROR_CHARS : SHORTENED_CHARS;
+            List<Content.Part> parts = new ArrayList<>();
+            for (Content.Part part : c.getParts() == null ? List.<Content.Part>of() : c.getParts()) {
+                Content.Part copy = new Content.Part();
+                copy.setThoughtSignature(part.getThoughtSignature());
+                copy.setFunctionResponse(part.getFunctionResponse());
+                if (part.getText() != null) copy.setText(head(part.getText(), keep));
+                if (part.getFunctionCall() != null) {
+                    // The arguments of an earlier apply_test_class are the test class, which is sent anyway
+                    copy.setFunctionCall(new Content.FunctionCall(part.getFunctionCall().getName(),
+                            Map.of("omitted", "arguments left out to stay within the context budget")));
+                }
+                parts.add(copy);
+            }
+            return new Content(c.getRole(), parts);
+        });
+    }
+
+    private Content drop(Content original, Kind kind) {
+        return dropped.computeIfAbsent(original, c -> {
+            String label = labels.getOrDefault(c, kind.name().toLowerCase(Locale.ROOT).replace('_', ' '));
+            String note = "[" + label + " left out to stay within the context budget"
+                    + (kind == Kind.DEPENDENCY ? "; call get_file again if it is still needed" : "") + "]";
+            return new Content(c.getRole(), List.of(new Content.Part(note)));
+        });
+    }
+
+    /** The first {@code keep} characters, cut at a line end. */
+    private static String head(String text, int keep) {
+        if (text.length() <= keep) return text;
+        int cut = text.lastIndexOf('\n', keep);
+        if (cut <= 0) cut = keep;
+        long omitted = text.substring(cut).lines().count();
+        return text.substring(0, cut) + "\n… [" + omitted + " more lines left out to stay within the context budget]";
+    }
+
+    private static String json(Object value) {
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            return String.valueOf(value);
+        }
+    }
+}
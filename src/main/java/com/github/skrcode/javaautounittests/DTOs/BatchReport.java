@@ -0,0 +1,61 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests.DTOs;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Machine readable outcome of a headless batch, written as JSON for CI. A sharded run writes one
+ * report per shard (its manifest); merging them yields the report of the whole batch.
+ */
+public class BatchReport {
+
+    public String project;
+    public int requested;
+    public int succeeded;
+    public int incomplete;
+    public int failed;
+    public int cancelled;
+    public long durationMs;
+    public List<GenerationResult> results = new ArrayList<>();
+
+    // --- sharding (null when the batch was not sharded) ---
+    /** 0-based index of this shard; null for unsharded and merged reports. */
+    public Integer shardIndex;
+    public Integer shardCount;
+    public String shardStrategy;
+    /** Qualified names of the classes this report was responsible for. */
+    public List<String> assigned = new ArrayList<>();
+    /** Only set on merged reports: shards whose manifest was not supplied. */
+    public List<Integer> missingShards = new ArrayList<>();
+
+    public BatchReport() {}
+
+    public static BatchReport of(String project, int requested, List<GenerationResult> results, long durationMs) {
+        BatchReport report = new BatchReport();
+        report.project = project;
+        report.requested = requested;
+        report.durationMs = durationMs;
+        report.results = new ArrayList<>(results);
+        for (GenerationResult result : results) {
+            switch (result.status) {
+                case SUCCEEDED -> report.succeeded++;
+                case INCOMPLETE -> report.incomplete++;
+                case FAILED -> report.failed++;
+                case CANCELLED -> report.cancelled++;
+            }
+        }
+        return report;
+    }
+
+    /** Classes requested but never reported, e.g. because the batch was aborted. */
+    @JsonIgnore
+    public int missing() {
+        return Math.max(0, requested - results.size());
+    }
+}
@@ -0,0 +1,37 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests.DTOs;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Outcome of one class run by {@code TestGenerationWorker}.
+ */
+public class GenerationResult {
+
+    public enum Status { SUCCEEDED, INCOMPLETE, FAILED, CANCELLED }
+
+    public String className;
+    public String classFqn;
+    public Status status;
+    public int attempts;
+    public long durationMs;
+    public String message;
+
+    public GenerationResult() {}
+
+    public GenerationResult(String className, Status status, int attempts, long durationMs, String message) {
+        this.className = className;
+        this.status = status;
+        this.attempts = attempts;
+        this.durationMs = durationMs;
+        this.message = message;
+    }
+
+    @JsonIgnore
+    public boolean isSucceeded() {
+        return status == Status.SUCCEEDED;
+    }
+}
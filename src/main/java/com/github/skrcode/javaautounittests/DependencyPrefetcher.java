@@ -0,0 +1,116 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Finds the project classes a CUT's tests will need – the types of its fields, constructor
+ * parameters, method signatures and thrown exceptions – so their skeletons go into the first
+ * request instead of costing the model one {@code get_file} round trip each.
+ *
+ * Collaborators come first (fields and constructor parameters are what tests mock), then method
+ * signature types, then exceptions. Type arguments count too ({@code List<Order>} yields
+ * {@code Order}), and so do the supertypes declaring methods the CUT calls. JDK and library types
+ * are left to {@code get_file}: the model knows the common ones and the rest are rarely needed.
+ */
+public final class DependencyPrefetcher {
+    private DependencyPrefetcher() {}
+
+    /** Upper bounds for what goes into the first request. */
+    private static final int MAX_CLASSES = 12;
+    private static final int MAX_CHARS = 48_000;
+
+    /** A prefetched dependency: the path {@code get_file} would use, its class name and skeleton, sliced or whole. */
+    public record Dependency(String path, String qualifiedName, VirtualFile file, String skeleton, boolean sliced) {}
+
+    /** With a {@code usage}, skeletons are sliced to the members the CUT uses, see {@link MemberSlicer}. */
+    public static List<Dependency> prefetch(@NotNull Project project, @NotNull PsiClass cut, @Nullable MemberSlicer.Usage usage) {
+        List<PsiClass> classes = ReadAction.compute(() -> cut.isValid() ? referencedProjectClasses(project, cut, usage) : List.of());
+
+        List<Dependency> out = new ArrayList<>();
+        int chars = 0;
+        for (PsiClass clazz : classes) {
+            if (out.size() >= MAX_CLASSES) break;
+            String path = ReadAction.compute(() -> sourceRootPath(clazz));
+            VirtualFile file = ReadAction.compute(() -> clazz.isValid() ? clazz.getContainingFile().getVirtualFile() : null);
+            if (path == null || file == null) continue;
+            String skeleton = TestGenerationWorker.skeletonOf(project, file, usage);
+            if (skeleton.isBlank() || chars + skeleton.length() > MAX_CHARS) continue;
+            chars += skeleton.length();
+            out.add(new Dependency(path, ReadAction.compute(clazz::getQualifiedName), file, skeleton,
+                    usage != null && usage.slices(file)));
+        }
+        return out;
+    }
+
+    /** Top-level project source classes referenced by {@code cut}'s declarations, most useful first. Read action. */
+    private static List<PsiClass> referencedProjectClasses(Project project, PsiClass cut, @Nullable MemberSlicer.Usage usage) {
+        Set<PsiClass> found = new LinkedHashSet<>();
+
+        for (PsiField field : cut.getFields()) collect(field.getType(), found);
+        for (PsiMethod constructor : cut.getConstructors()) {
+            for (PsiParameter parameter : constructor.getParameterList().getParameters()) collect(parameter.getType(), found);
+        }
+        for (PsiMethod method : cut.getMethods()) {
+            if (method.isConstructor() || method.hasModifierProperty(PsiModifier.PRIVATE)) continue;
+            collect(method.getReturnType(), found);
+            for (PsiParameter parameter : method.getParameterList().getParameters()) collect(parameter.getType(), found);
+        }
+        for (PsiMethod method : cut.getMethods()) {
+            for (PsiClassType thrown : method.getThrowsList().getReferencedTypes()) collect(thrown, found);
+        }
+        // Declarers of called members the signatures do not name, e.g. a collaborator's supertype
+        if (usage != null) found.addAll(usage.declaringClasses());
+
+        ProjectFileIndex index = ProjectFileIndex.getInstance(project);
+        PsiFile cutFile = cut.getContainingFile();
+        List<PsiClass> out = new ArrayList<>();
+        Set<PsiFile> files = new HashSet<>();
+        for (PsiClass clazz : found) {
+            PsiClass topLevel = topLevel(clazz);
+            PsiFile file = topLevel.getContainingFile();
+            if (file == null || file == cutFile || !(file instanceof PsiJavaFile) || !files.add(file)) continue;
+            VirtualFile vf = file.getVirtualFile();
+            if (vf == null || !index.isInSourceContent(vf) || index.isInTestSourceContent(vf)) continue;
+            out.add(topLevel);
+        }
+        return out;
+    }
+
+    private static void collect(PsiType type, Set<PsiClass> found) {
+        if (type == null) return;
+        type = type.getDeepComponentType();
+        if (type instanceof PsiWildcardType wildcard) {
+            collect(wildcard.getBound(), found);
+            return;
+        }
+        if (!(type instanceof PsiClassType classType)) return;
+        PsiClass resolved = classType.resolve();
+        if (resolved != null && !(resolved instanceof PsiTypeParameter)) found.add(resolved);
+        for (PsiType argument : classType.getParameters()) collect(argument, found);
+    }
+
+    private static PsiClass topLevel(PsiClass clazz) {
+        PsiClass top = clazz;
+        while (top.getContainingClass() != null) top = top.getContainingClass();
+        return top;
+    }
+
+    /** Path relative to its source root, as the model asks for it in {@code get_file}. Read action. */
+    private static @Nullable String sourceRootPath(PsiClass clazz) {
+        if (!clazz.isValid() || !(clazz.getContainingFile() instanceof PsiJavaFile file)) return null;
+        String packagePath = file.getPackageName().replace('.', '/');
+        return (packagePath.isEmpty() ? "" : packagePath + "/") + file.getName();
+    }
+}
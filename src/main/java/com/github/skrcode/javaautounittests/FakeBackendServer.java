@@ -0,0 +1,305 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Stand-in for the JAIPilot backend on localhost, for load tests and profiling without network.
+ *
+ * Speaks the same protocol as the real functions – job creation with gzip and session deltas,
+ * long-polled {@code fetch-job}, their batched forms, quota, feedback and telemetry – and answers
+ * with the usual function calls. Answers come from, in order:
+ *
+ *   • recordings → a {@link LlmResponseCache} directory, e.g. {@code <system>/jaipilot/llm-cache};
+ *                  a request whose {@link RequestHash} was recorded gets exactly that answer
+ *   • a script   → JSON {@code {"latencyMs": 1500, "attempts": [<output of attempt 1>, ...]}};
+ *                  {@code ${package}} and {@code ${class}} in strings become the CUT's
+ *   • built-in   → {@code plan_test_changes}, then {@code apply_test_class} with one empty
+ *                  {@code @Test}, then {@code terminate_call}
+ *
+ * Start it with {@code --fake-backend[=<script.json>]} on a headless run, or standalone via
+ * {@link #main} and point the IDE at the printed URL (Settings → Backend URL).
+ */
+public final class FakeBackendServer {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+    private static final Pattern CLASS = Pattern.compile("\\b(?:class|record|enum|interface)\\s+(\\w+)");
+
+    private final HttpServer server;
+    private final ExecutorService handlers = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "JAIPilot fake backend");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final @Nullable JsonNode script;
+    private final @Nullable Path recordings;
+    private final long latencyMs;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<String, List<JsonNode>> sessions = new ConcurrentHashMap<>();
+
+    private static final class Job {
+        final long readyAt;
+        final String output;
+
+        Job(long readyAt, String output) {
+            this.readyAt = readyAt;
+            this.output = output;
+        }
+    }
+
+    private FakeBackendServer(int port, @Nullable JsonNode script, @Nullable Path recordings) throws IOException {
+        this.script = script;
+        this.recordings = recordings;
+        this.latencyMs = script == null ? 1000 : script.path("latencyMs").asLong(1000);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(handlers);
+        server.createContext("/", this::handle);
+    }
+
+    /** Starts on {@code port} (0 picks a free one); {@code script} and {@code recordings} are optional. */
+    public static FakeBackendServer start(int port, @Nullable Path script, @Nullable Path recordings) throws IOException {
+        JsonNode parsed = script == null ? null : MAPPER.readTree(script.toFile());
+        FakeBackendServer fake = new FakeBackendServer(port, parsed, recordings);
+        fake.server.start();
+        return fake;
+    }
+
+    /** Base URL to use instead of the real functions URL. */
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public void stop() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    /** {@code FakeBackendServer [port] [script.json] [recordings dir]} */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8787;
+        Path script = args.length > 1 && !args[1].isEmpty() ? Paths.get(args[1]) : null;
+        Path recordings = args.length > 2 ? Paths.get(args[2]) : null;
+        System.out.println("JAIPilot fake backend on " + start(port, script, recordings).url());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String function = path.substring(path.lastIndexOf('/') + 1);
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            switch (function) {
+                case "invoke-junit-llm-patch" -> createJob(exchange);
+                case "invoke-junit-llm-patch-batch" -> createJobs(exchange);
+                case "fetch-job" -> fetchJob(exchange, query);
+                case "fetch-jobs" -> fetchJobs(exchange, query);
+                case "fetch-quota" -> reply(exchange, 200, "{\"quotaUsed\":0,\"quotaTotal\":1000000,\"quotaRemaining\":1000000}");
+                default -> reply(exchange, 204, null); // feedback, telemetry, warm-up
+            }
+        } catch (Exception e) {
+            reply(exchange, 500, "{\"error\":" + TextNode.valueOf(String.valueOf(e.getMessage())) + "}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void createJob(HttpExchange exchange) throws IOException {
+        ObjectNode created = createJob(readBody(exchange));
+        reply(exchange, created.path("status").asInt(200), created.toString());
+    }
+
+    /** {@code {"jobs": [<job request>, ...]}} → {@code {"jobs": [<answer per job>, ...]}} */
+    private void createJobs(HttpExchange exchange) throws IOException {
+        ObjectNode answer = JsonNodeFactory.instance.objectNode();
+        ArrayNode created = answer.putArray("jobs");
+        for (JsonNode request : readBody(exchange).path("jobs")) created.add(createJob(request));
+        reply(exchange, 200, answer.toString());
+    }
+
+    private static JsonNode readBody(HttpExchange exchange) throws IOException {
+        try (InputStream raw = exchange.getRequestBody();
+             InputStream body = "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))
+                     ? new GZIPInputStream(raw) : raw) {
+            return MAPPER.readTree(body);
+        }
+    }
+
+    /** {@code {"jobId", "sessionId"}}, or {@code {"status": 409, "error"}} for a delta on an unknown session. */
+    private ObjectNode createJob(JsonNode request) throws IOException {
+        String sessionId = request.path("sessionId").asText(null);
+        List<JsonNode> contents;
+        if (request.has("baseCount")) {
+            List<JsonNode> history = sessionId == null ? null : sessions.get(sessionId);
+            int base = request.get("baseCount").asInt();
+            if (history == null || history.size() < base) {
+                return JsonNodeFactory.instance.objectNode().put("status", 409).put("error", "unknown session");
+            }
+            contents = new ArrayList<>(history.subList(0, base));
+            request.path("delta").forEach(contents::add);
+        } else {
+            contents = new ArrayList<>();
+            request.path("contents").forEach(contents::add);
+        }
+        if (sessionId != null) sessions.put(sessionId, contents);
+
+        int attempt = request.path("attemptNumber").asInt(1);
+        String jobId = UUID.randomUUID().toString();
+        jobs.put(jobId, new Job(System.currentTimeMillis() + latencyMs, answer(contents, attempt)));
+
+        ObjectNode created = JsonNodeFactory.instance.objectNode().put("jobId", jobId);
+        if (sessionId != null) created.put("sessionId", sessionId);
+        return created;
+    }
+
+    private void fetchJob(HttpExchange exchange, Map<String, String> query) throws IOException, InterruptedException {
+        Job job = jobs.get(query.getOrDefault("id", ""));
+        if (job == null) {
+            reply(exchange, 404, "{\"error\":\"unknown job\"}");
+            return;
+        }
+        holdUntil(job.readyAt, query);
+        reply(exchange, 200, status(job).toString());
+    }
+
+    /** {@code ids=a,b,c}: held until the first of them is ready, then reports all of them. */
+    private void fetchJobs(HttpExchange exchange, Map<String, String> query) throws InterruptedException, IOException {
+        long firstReady = Long.MAX_VALUE;
+        ObjectNode answer = JsonNodeFactory.instance.objectNode();
+        ObjectNode statuses = answer.putObject("jobs");
+        List<String> ids = List.of(query.getOrDefault("ids", "").split(","));
+        for (String id : ids) {
+            Job job = jobs.get(id);
+            if (job != null) firstReady = Math.min(firstReady, job.readyAt);
+        }
+        holdUntil(firstReady, query);
+        for (String id : ids) {
+            Job job = jobs.get(id);
+            if (job != null) statuses.set(id, status(job));
+        }
+        reply(exchange, 200, answer.toString());
+    }
+
+    /** Long poll: holds the request until {@code readyAt} or until the client's {@code waitMs} is over. */
+    private static void holdUntil(long readyAt, Map<String, String> query) throws InterruptedException {
+        long waitMs = Long.parseLong(query.getOrDefault("waitMs", "0"));
+        long wait = Math.min(readyAt, System.currentTimeMillis() + waitMs) - System.currentTimeMillis();
+        if (wait > 0) TimeUnit.MILLISECONDS.sleep(wait);
+    }
+
+    private static ObjectNode status(Job job) {
+        ObjectNode status = JsonNodeFactory.instance.objectNode();
+        if (System.currentTimeMillis() >= job.readyAt) {
+            status.put("status", "done").put("output", job.output);
+        } else {
+            status.put("status", "running");
+        }
+        return status;
+    }
+
+    /** The model output for a request, as the JSON string the real backend puts into {@code output}. */
+    private String answer(List<JsonNode> contents, int attempt) throws IOException {
+        ArrayNode history = JsonNodeFactory.instance.arrayNode().addAll(contents);
+        if (recordings != null) {
+            Path recorded = recordings.resolve(RequestHash.of(history, attempt) + ".json");
+            if (Files.isRegularFile(recorded)) return Files.readString(recorded);
+        }
+
+        String cut = contents.isEmpty() ? "" : contents.get(0).path("parts").path(0).path("text").asText("");
+        Matcher pkg = PACKAGE.matcher(cut);
+        Matcher cls = CLASS.matcher(cut);
+        String packageName = pkg.find() ? pkg.group(1) : "";
+        String className = cls.find() ? cls.group(1) : "Unknown";
+
+        if (script != null) {
+            JsonNode scripted = script.path("attempts").path(attempt - 1);
+            if (!scripted.isMissingNode()) {
+                return scripted.toString().replace("${package}", packageName).replace("${class}", className);
+            }
+            return output(call("terminate_call", JsonNodeFactory.instance.objectNode()));
+        }
+
+        return switch (attempt) {
+            case 1 -> output(call("plan_test_changes", JsonNodeFactory.instance.objectNode()
+                    .put("testPlan", "Smoke test for " + className)));
+            case 2 -> {
+                String skeleton = (packageName.isEmpty() ? "" : "package " + packageName + ";\n\n")
+                        + "import org.junit.jupiter.api.Test;\n\nclass " + className + "Test {\n}\n";
+                ObjectNode args = JsonNodeFactory.instance.objectNode().put("classSkeleton", skeleton);
+                args.putArray("methods").addObject()
+                        .put("methodName", "smoke")
+                        .put("fullImplementation", "@Test\nvoid smoke() {\n}");
+                yield output(call("apply_test_class", args));
+            }
+            default -> output(call("terminate_call", JsonNodeFactory.instance.objectNode()));
+        };
+    }
+
+    private static ObjectNode call(String name, ObjectNode args) {
+        ObjectNode call = JsonNodeFactory.instance.objectNode().put("name", name);
+        call.set("args", args);
+        return call;
+    }
+
+    private static String output(ObjectNode functionCall) {
+        ObjectNode output = JsonNodeFactory.instance.objectNode();
+        ObjectNode content = output.putObject("content").put("role", "model");
+        content.putArray("parts").addObject().set("functionCall", functionCall);
+        return output.toString();
+    }
+
+    private static Map<String, String> query(@Nullable String raw) {
+        Map<String, String> out = new HashMap<>();
+        if (raw == null) return out;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                out.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return out;
+    }
+
+    private static void reply(HttpExchange exchange, int status, @Nullable String json) throws IOException {
+        exchange.getResponseHeaders().set("Accept-Encoding", "gzip"); // request bodies may be gzipped
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
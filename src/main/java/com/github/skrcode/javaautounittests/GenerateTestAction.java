@@ -19,9 +19,7 @@ import com.intellij.psi.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 /**
  * Entry‑point action – collects one or many classes/directories and delegates to the worker service.
@@ -41,11 +39,6 @@ public class GenerateTestAction extends AnAction implements DumbAware {
             Messages.showErrorDialog(project, "No Java classes found in selection.", "JAIPilot");
             return;
         }
-        if (classes.size() > 1) {
-            Telemetry.uiSettingsFailureClick("multiple classes selected");
-            Messages.showErrorDialog(project, "Please select only single java class.", "JAIPilot");
-            return;
-        }
         if (AISettings.getInstance().getProKey().isEmpty()) {
             Telemetry.uiSettingsFailureClick("license key not configured in settings");
             Messages.showErrorDialog(project, "Please configure license key in settings.", "JAIPilot");
@@ -57,10 +50,10 @@ public class GenerateTestAction extends AnAction implements DumbAware {
             return;
         }
 
-        BulkGeneratorService.enqueue(project, classes.get(0), stringPathToPsiDirectory(project,AIProjectSettings.getInstance(project).getTestDirectory()));
+        BulkGeneratorService.enqueue(project, classes, stringPathToPsiDirectory(project,AIProjectSettings.getInstance(project).getTestDirectory()));
     }
 
-    private static @Nullable PsiDirectory stringPathToPsiDirectory(Project project, String path) {
+    static @Nullable PsiDirectory stringPathToPsiDirectory(Project project, String path) {
         VirtualFile file = LocalFileSystem.getInstance().findFileByPath(path);
         if (file == null || !file.isDirectory()) {
             return null;
@@ -69,8 +62,9 @@ public class GenerateTestAction extends AnAction implements DumbAware {
     }
 
 
-    private List<PsiClass> collectClasses(PsiElement[] elements) {
-        List<PsiClass> classes = new ArrayList<>();
+    static List<PsiClass> collectClasses(PsiElement[] elements) {
+        // Linked set: a file and its directory may both be selected
+        Set<PsiClass> classes = new LinkedHashSet<>();
 
         for (PsiElement element : elements) {
 
@@ -81,11 +75,13 @@ public class GenerateTestAction extends AnAction implements DumbAware {
                 classes.addAll(List.of(javaFile.getClasses()));
 
             } else if (element instanceof PsiDirectory dir) {
-                // ✅ Recursively collect from directory
+                // ✅ Recursively collect top-level classes from directory
                 dir.accept(new JavaRecursiveElementVisitor() {
                     @Override public void visitClass(PsiClass aClass) {
-                        classes.add(aClass);
-                        super.visitClass(aClass);
+                        // Nested and anonymous classes are covered by the test of their top-level class
+                        if (aClass.getParent() instanceof PsiJavaFile) {
+                            classes.add(aClass);
+                        }
                     }
                 });
 
@@ -95,7 +91,7 @@ public class GenerateTestAction extends AnAction implements DumbAware {
             }
         }
 
-        return classes;
+        return new ArrayList<>(classes);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.DTOs.PromptResponseOutput;
+import com.github.skrcode.javaautounittests.settings.GenerationRun;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Two-stage pipeline shared by all classes of one batch.
+ *
+ *   • remote stage → LLM job creation and polling (network bound)
+ *   • local stage  → compile + run of the generated test class (CPU / IDE bound)
+ *
+ * The batch admits more classes than remote slots, so while class A holds the local stage
+ * class B can already have its LLM job in flight. Wall-clock time of a batch then tends to
+ * max(remote latency, local build time) instead of their sum.
+ *
+ * Both stages are async: a class waiting for a slot, for an LLM job or for a build holds a
+ * queued future, not a thread. The width of the remote stage follows a
+ * {@link ConcurrencyController}.
+ */
+public final class GenerationPipeline {
+
+    /** IntelliJ serialises make anyway; parallel builds only fight over the compiler. */
+    public static final int LOCAL_STAGE_WIDTH = 1;
+
+    private final AsyncLimiter remoteSlots;
+    private final AsyncLimiter localSlots;
+    private final AsyncLimiter admission;
+    private final ConcurrencyController controller;
+
+    /**
+     * @param maxRemoteWidth upper bound of parallel LLM jobs
+     * @param adaptive       let a {@link ConcurrencyController} move the width between 1 and the bound
+     * @param log            receives the controller's decisions
+     */
+    public GenerationPipeline(int maxRemoteWidth, boolean adaptive, @NotNull Consumer<String> log) {
+        this.remoteSlots = new AsyncLimiter(maxRemoteWidth);
+        this.localSlots = new AsyncLimiter(LOCAL_STAGE_WIDTH);
+        this.admission = new AsyncLimiter(maxRemoteWidth + LOCAL_STAGE_WIDTH);
+        this.controller = new ConcurrencyController(maxRemoteWidth, adaptive, this::applyRemoteWidth, log);
+    }
+
+    /** Current number of LLM slots. */
+    public int remoteWidth() {
+        return remoteSlots.limit();
+    }
+
+    /** Number of classes currently waiting to compile/run. */
+    public int localQueueDepth() {
+        return localSlots.waiting();
+    }
+
+    /**
+     * Admits a whole class. Only as many classes as both stages can keep busy are admitted at
+     * once, so console tabs and conversation state exist only for classes actually being worked on.
+     */
+    public <T> CompletableFuture<T> admit(Supplier<CompletableFuture<T>> work) {
+        return admission.submit(null, work);
+    }
+
+    /** What a request in the LLM stage reports while it is still running. */
+    public interface RemoteSignals {
+        /** The request failed (5xx, network error, timeout) and is about to be retried. */
+        void retrying(String reason);
+
+        /** The answer was replayed from the response cache, so its latency says nothing about the backend. */
+        void replayed();
+    }
+
+    /**
+     * LLM stage. Every outcome is fed back to the concurrency controller, and so is every retry
+     * {@code work} reports through its {@link RemoteSignals}: requests retry several times before
+     * they fail, which would otherwise delay any back-off well into an outage.
+     */
+    public CompletableFuture<PromptResponseOutput> remote(GenerationRun run,
+                                                          Function<RemoteSignals, CompletableFuture<PromptResponseOutput>> work) {
+        return remoteSlots.submit(run, () -> {
+            long start = System.nanoTime();
+            AtomicBoolean replayed = new AtomicBoolean();
+            RemoteSignals signals = new RemoteSignals() {
+                @Override
+                public void retrying(String reason) {
+                    controller.onRemotePressure("LLM request retried: " + reason);
+                }
+
+                @Override
+                public void replayed() {
+                    replayed.set(true);
+                }
+            };
+            return work.apply(signals).whenComplete((output, error) -> {
+                if (error != null) {
+                    if (!GenerationRun.isCancellation(error)) {
+                        controller.onRemotePressure("LLM request failed: " + GenerationRun.unwrap(error).getMessage());
+                    }
+                } else if (output.getErrorCode() == 429) {
+                    controller.onRemotePressure("backend answered " + output.getErrorCode());
+                } else if (!replayed.get()) {
+                    controller.onRemoteSuccess((System.nanoTime() - start) / 1_000_000, localQueueDepth());
+                }
+            });
+        });
+    }
+
+    public <T> CompletableFuture<T> local(GenerationRun run, Supplier<CompletableFuture<T>> work) {
+        return localSlots.submit(run, () -> {
+            long start = System.nanoTime();
+            return work.get().whenComplete((r, t) -> controller.onLocalDone((System.nanoTime() - start) / 1_000_000));
+        });
+    }
+
+    /** Fails classes still queued for admission or a stage, e.g. when the batch is cancelled. */
+    public void cancelWaiting() {
+        admission.cancelWaiting();
+        remoteSlots.cancelWaiting();
+        localSlots.cancelWaiting();
+    }
+
+    private void applyRemoteWidth(int width) {
+        remoteSlots.setLimit(width);
+        admission.setLimit(width + LOCAL_STAGE_WIDTH);
+    }
+}
@@ -0,0 +1,169 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.settings.AISettings;
+import com.github.skrcode.javaautounittests.settings.GenerationQueueState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+/**
+ * Orders a bulk batch so cheap, high-value classes finish first, and estimates how long the
+ * rest of the batch will take.
+ *
+ * Ordering keys (configured in settings, applied left to right):
+ *   • UNTESTED      → classes without an existing {@code *Test} first
+ *   • SIZE          → smaller classes (PSI text length) first
+ *   • DEPENDENCIES  → classes referencing fewer project types first
+ *   • HISTORY       → classes that needed fewer attempts last time first
+ */
+public final class GenerationScheduler {
+
+    public enum Key { UNTESTED, SIZE, DEPENDENCIES, HISTORY }
+
+    /** Used until the first class of a batch finishes and we have real numbers. */
+    private static final long DEFAULT_MS_PER_KB = 20_000;
+    private static final long MIN_CLASS_MS = 30_000;
+
+    private final Map<PsiClass, ClassCost> costs;
+    private final List<PsiClass> ordered;
+    private final IntSupplier parallelism;
+    private final Map<PsiClass, Long> actualMs = new ConcurrentHashMap<>();
+
+    record ClassCost(boolean hasTest, int size, int dependencies, int historyAttempts, long historyMs) {
+        long estimateMs() {
+            if (historyMs > 0) return historyMs;
+            return Math.max(MIN_CLASS_MS, size * DEFAULT_MS_PER_KB / 1024);
+        }
+    }
+
+    private GenerationScheduler(Map<PsiClass, ClassCost> costs, List<PsiClass> ordered, IntSupplier parallelism) {
+        this.costs = costs;
+        this.ordered = ordered;
+        this.parallelism = parallelism;
+    }
+
+    /** @param parallelism current number of LLM slots; read on every estimate since it may change */
+    public static GenerationScheduler create(@NotNull Project project, @NotNull List<PsiClass> classes, @NotNull IntSupplier parallelism) {
+        GenerationQueueState queue = GenerationQueueState.getInstance(project);
+        Map<PsiClass, ClassCost> costs = new LinkedHashMap<>();
+        for (PsiClass clazz : classes) {
+            costs.put(clazz, ReadAction.compute(() -> cost(project, clazz, queue)));
+        }
+
+        Comparator<PsiClass> order = comparator(parseKeys(AISettings.getInstance().getSchedulerKeys()), costs);
+        List<PsiClass> ordered = new ArrayList<>(classes);
+        ordered.sort(order); // stable: equal classes keep selection order
+        return new GenerationScheduler(costs, ordered, parallelism);
+    }
+
+    /** Classes in the order they should be dispatched. */
+    public List<PsiClass> ordered() {
+        return ordered;
+    }
+
+    public void recordFinished(@NotNull PsiClass clazz, long durationMs) {
+        actualMs.put(clazz, durationMs);
+    }
+
+    /**
+     * Remaining wall-clock estimate for the batch. Per-class estimates come from history or class
+     * size and are scaled by how far off they were for the classes finished so far.
+     */
+    public long estimateRemainingMillis() {
+        double estimatedDone = 0, actualDone = 0, remaining = 0;
+        for (Map.Entry<PsiClass, ClassCost> e : costs.entrySet()) {
+            Long actual = actualMs.get(e.getKey());
+            if (actual != null) {
+                estimatedDone += e.getValue().estimateMs();
+                actualDone += actual;
+            } else {
+                remaining += e.getValue().estimateMs();
+            }
+        }
+        double calibration = estimatedDone > 0 ? actualDone / estimatedDone : 1.0;
+        return (long) (remaining * calibration / Math.max(1, parallelism.getAsInt()));
+    }
+
+    public static String formatDuration(long millis) {
+        long minutes = Math.round(millis / 60_000.0);
+        if (minutes < 1) return "<1m";
+        if (minutes < 60) return minutes + "m";
+        return (minutes / 60) + "h " + (minutes % 60) + "m";
+    }
+
+    static List<Key> parseKeys(String spec) {
+        List<Key> keys = new ArrayList<>();
+        if (spec == null) return keys;
+        for (String token : spec.split(",")) {
+            String name = token.trim().toUpperCase(Locale.ROOT);
+            if (name.isEmpty()) continue;
+            try {
+                keys.add(Key.valueOf(name));
+            } catch (IllegalArgumentException ignored) {
+                // unknown key in settings – skip rather than fail the batch
+            }
+        }
+        return keys;
+    }
+
+    private static Comparator<PsiClass> comparator(List<Key> keys, Map<PsiClass, ClassCost> costs) {
+        Comparator<PsiClass> order = (a, b) -> 0;
+        for (Key key : keys) {
+            Comparator<ClassCost> byKey = switch (key) {
+                case UNTESTED -> Comparator.comparing(ClassCost::hasTest);
+                case SIZE -> Comparator.comparingInt(ClassCost::size);
+                case DEPENDENCIES -> Comparator.comparingInt(ClassCost::dependencies);
+                case HISTORY -> Comparator.comparingInt(ClassCost::historyAttempts);
+            };
+            order = order.thenComparing(costs::get, byKey);
+        }
+        return order;
+    }
+
+    private static ClassCost cost(Project project, PsiClass clazz, GenerationQueueState queue) {
+        if (!clazz.isValid()) return new ClassCost(true, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 0);
+
+        String fqn = clazz.getQualifiedName();
+        boolean hasTest = fqn != null && JavaPsiFacade.getInstance(project)
+                .findClass(fqn + "Test", GlobalSearchScope.projectScope(project)) != null;
+
+        GenerationQueueState.Entry history = fqn == null ? null : queue.get(fqn);
+        int historyAttempts = history == null ? 0 : history.lastAttempts;
+        long historyMs = history == null ? 0 : history.lastDurationMs;
+
+        return new ClassCost(hasTest, clazz.getTextLength(), countProjectDependencies(project, clazz), historyAttempts, historyMs);
+    }
+
+    /** Distinct project types used in field, constructor and method signatures. */
+    private static int countProjectDependencies(Project project, PsiClass clazz) {
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+        Set<String> deps = new HashSet<>();
+        List<PsiType> types = new ArrayList<>();
+        for (PsiField field : clazz.getFields()) types.add(field.getType());
+        for (PsiMethod method : clazz.getMethods()) {
+            if (method.getReturnType() != null) types.add(method.getReturnType());
+            for (PsiParameter p : method.getParameterList().getParameters()) types.add(p.getType());
+        }
+        for (PsiType type : types) {
+            if (type.getDeepComponentType() instanceof PsiClassType classType) {
+                PsiClass resolved = classType.resolve();
+                if (resolved == null || resolved == clazz || resolved.getQualifiedName() == null) continue;
+                PsiFile file = resolved.getContainingFile();
+                if (file != null && file.getVirtualFile() != null && scope.contains(file.getVirtualFile())) {
+                    deps.add(resolved.getQualifiedName());
+                }
+            }
+        }
+        return deps.size();
+    }
+}
@@ -0,0 +1,356 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.skrcode.javaautounittests.DTOs.BatchReport;
+import com.github.skrcode.javaautounittests.DTOs.GenerationResult;
+import com.github.skrcode.javaautounittests.settings.AIProjectSettings;
+import com.github.skrcode.javaautounittests.settings.AISettings;
+import com.github.skrcode.javaautounittests.settings.JAIPilotHttpService;
+import com.intellij.ide.impl.ProjectUtil;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ApplicationStarter;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Headless entry point for CI:
+ *
+ *   idea jaipilot-generate &lt;projectDir&gt; &lt;class or package&gt;... [--test-root=&lt;dir&gt;]
+ *        [--report=&lt;file.json&gt;] [--parallel=&lt;n&gt;] [--strict] [--shard=&lt;i&gt;/&lt;n&gt;]
+ *        [--shard-strategy=hash|size] [--changed-since=&lt;git rev&gt;]
+ *        [--llm-cache=off|read-write|replay-only] [--fake-backend[=&lt;script.json&gt;]]
+ *
+ * Runs the same batch as the IDE action. Console tabs become prefixed stdout lines and the
+ * outcome is written as a {@link BatchReport} JSON file (default {@code <projectDir>/jaipilot-report.json}).
+ * A package target takes all its top-level production classes, sub-packages included. The license
+ * key comes from the IDE settings or the {@code JAIPILOT_KEY} environment variable.
+ *
+ * Change-driven: {@code --changed-since=<rev>} keeps only production classes in files changed since
+ * that git revision (working tree and untracked files included) and skips those whose tests
+ * already went green against their current source, see {@link IncrementalGenerationService}.
+ * Class and package targets are then optional and only narrow the diff down.
+ *
+ * {@code --llm-cache} overrides the response cache mode for this run, see {@link LlmResponseCache}.
+ * Without it a headless run reads and writes the cache, unlike the IDE, so a rerun of CI or of a
+ * failed shard replays the answers it already paid for; {@code replay-only} turns a recorded run into a deterministic, offline benchmark.
+ * {@code --fake-backend} answers every backend call from an embedded {@link FakeBackendServer}
+ * instead, optionally scripted, so whole batches can be load-tested and profiled without network,
+ * quota or model variance.
+ *
+ * Sharding: {@code --shard=<i>/<n>} (1-based) keeps only the i-th of n deterministic slices of
+ * the collected classes, see {@link BatchSharding}; its report doubles as the shard manifest
+ * (default {@code jaipilot-report-shard-<i>-of-<n>.json}). Once all agents are done,
+ *
+ *   idea jaipilot-generate --merge=&lt;out.json&gt; &lt;manifest&gt;...
+ *
+ * combines the manifests; it needs no project.
+ *
+ * Exit codes: 0 all classes generated, 1 some class failed, was cancelled or never ran, or a shard
+ * manifest is missing (with {@code --strict} also when a class ended incomplete), 2 bad arguments,
+ * 3 unexpected error.
+ */
+public final class HeadlessGenerationStarter implements ApplicationStarter {
+
+    static final String COMMAND = "jaipilot-generate";
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILED = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final int EXIT_ERROR = 3;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    @Override
+    public String getCommandName() {
+        return COMMAND;
+    }
+
+    @Override
+    public int getRequiredModality() {
+        return NOT_IN_EDT;
+    }
+
+    @Override
+    public void main(@NotNull List<String> args) {
+        int exitCode;
+        try {
+            exitCode = run(args.subList(1, args.size()));
+        } catch (Throwable t) {
+            System.err.println("JAIPilot: " + t.getMessage());
+            t.printStackTrace();
+            exitCode = EXIT_ERROR;
+        }
+        System.exit(exitCode);
+    }
+
+    private static int run(List<String> args) throws Exception {
+        List<String> positional = new ArrayList<>();
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int eq = arg.indexOf('=');
+                options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+            } else {
+                positional.add(arg);
+            }
+        }
+        boolean strict = Boolean.parseBoolean(options.getOrDefault("strict", "false"));
+        if (options.containsKey("merge")) {
+            return merge(Paths.get(options.get("merge")).toAbsolutePath(), positional, strict);
+        }
+        String changedSince = options.get("changed-since");
+        if (positional.size() < (changedSince == null ? 2 : 1)) {
+            System.err.println("Usage: " + COMMAND + " <projectDir> <class or package>... "
+                    + "[--test-root=<dir>] [--report=<file.json>] [--parallel=<n>] [--strict] "
+                    + "[--shard=<i>/<n>] [--shard-strategy=hash|size] [--changed-since=<git rev>] "
+                    + "[--llm-cache=off|read-write|replay-only] [--fake-backend[=<script.json>]]");
+            System.err.println("       " + COMMAND + " --merge=<out.json> <shard manifest>...");
+            return EXIT_USAGE;
+        }
+        int[] shard = parseShard(options.get("shard"));
+        if (options.containsKey("shard") && shard == null) {
+            System.err.println("JAIPilot: --shard expects <i>/<n> with 1 <= i <= n, e.g. --shard=2/8");
+            return EXIT_USAGE;
+        }
+        Integer parallel = parsePositive(options.get("parallel"));
+        if (options.containsKey("parallel") && parallel == null) {
+            System.err.println("JAIPilot: --parallel expects a positive number, e.g. --parallel=8");
+            return EXIT_USAGE;
+        }
+        BatchSharding.Strategy strategy;
+        try {
+            strategy = BatchSharding.Strategy.valueOf(options.getOrDefault("shard-strategy", "hash").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("JAIPilot: --shard-strategy must be hash or size");
+            return EXIT_USAGE;
+        }
+
+        if (options.containsKey("llm-cache")) {
+            try {
+                LlmResponseCache.overrideMode(LlmResponseCache.Mode.valueOf(
+                        options.get("llm-cache").toUpperCase(Locale.ROOT).replace('-', '_')));
+            } catch (IllegalArgumentException e) {
+                System.err.println("JAIPilot: --llm-cache must be off, read-write or replay-only");
+                return EXIT_USAGE;
+            }
+        }
+
+        String key = System.getenv("JAIPILOT_KEY");
+        if (!StringUtil.isEmptyOrSpaces(key)) AISettings.getInstance().overrideProKey(key.trim()); // kept out of AISettings.xml
+
+        FakeBackendServer fake = null;
+        if (options.containsKey("fake-backend")) {
+            String script = options.get("fake-backend");
+            fake = FakeBackendServer.start(0, "true".equals(script) ? null : Paths.get(script).toAbsolutePath(), null);
+            JAIPilotHttpService.overrideBaseUrl(fake.url());
+            System.out.println("JAIPilot: using fake backend at " + fake.url());
+        }
+        if (!options.containsKey("llm-cache") && !JAIPilotHttpService.isRedirected()) {
+            LlmResponseCache.overrideMode(LlmResponseCache.Mode.READ_WRITE);
+        }
+
+        Path projectDir = Paths.get(positional.get(0)).toAbsolutePath().normalize();
+        Project project = ProjectUtil.openOrImport(projectDir, null, false);
+        if (project == null) {
+            System.err.println("JAIPilot: cannot open project " + projectDir);
+            if (fake != null) fake.stop();
+            return EXIT_USAGE;
+        }
+
+        try {
+            DumbService.getInstance(project).waitForSmartMode();
+
+            String testRootPath = options.getOrDefault("test-root", AIProjectSettings.getInstance(project).getTestDirectory());
+            PsiDirectory testRoot = resolveTestRoot(project, projectDir, testRootPath);
+            if (testRoot == null) {
+                System.err.println("JAIPilot: test root not found: " + testRootPath + " (pass --test-root=<dir>)");
+                return EXIT_USAGE;
+            }
+
+            List<String> targets = positional.subList(1, positional.size());
+            List<PsiClass> classes = targets.isEmpty() ? List.of() : resolveTargets(project, targets);
+            if (!targets.isEmpty() && classes.isEmpty()) {
+                System.err.println("JAIPilot: no classes matched " + targets);
+                return EXIT_USAGE;
+            }
+
+            if (changedSince != null) {
+                List<PsiClass> inDiff = IncrementalGenerationService.classesIn(project,
+                        IncrementalGenerationService.filesChangedSince(projectDir, changedSince));
+                List<PsiClass> selected = classes;
+                // Targets narrow the diff down, they do not add to it
+                List<PsiClass> changed = targets.isEmpty() ? inDiff : ReadAction.compute(() -> {
+                    Set<String> wanted = new HashSet<>();
+                    for (PsiClass clazz : selected) wanted.add(clazz.getQualifiedName());
+                    return inDiff.stream().filter(c -> wanted.contains(c.getQualifiedName())).toList();
+                });
+                classes = IncrementalGenerationService.needingGeneration(project, changed, testRoot);
+                System.out.println("JAIPilot: " + changed.size() + " classes changed since " + changedSince
+                        + ", " + classes.size() + " without green tests for their current source");
+            }
+
+            if (shard != null) {
+                int all = classes.size();
+                classes = BatchSharding.select(classes, shard[0], shard[1], strategy);
+                System.out.println("JAIPilot: shard " + (shard[0] + 1) + "/" + shard[1] + " (" + strategy.name().toLowerCase(Locale.ROOT)
+                        + ") takes " + classes.size() + " of " + all + " classes");
+            }
+
+            if (parallel == null) parallel = AISettings.getInstance().getMaxParallelClasses();
+
+            long start = System.nanoTime();
+            List<GenerationResult> results = List.of();
+            if (!classes.isEmpty()) { // an empty shard or an unchanged diff still writes its report
+                System.out.println("JAIPilot: generating tests for " + classes.size() + " classes, up to " + parallel + " in parallel");
+                BulkGeneratorService.recordQueued(project, classes, testRoot);
+                results = BulkGeneratorService.runBatch(project, classes, testRoot, new EmptyProgressIndicator(), parallel);
+            }
+            BatchReport report = BatchReport.of(project.getName(), classes.size(), results, (System.nanoTime() - start) / 1_000_000);
+            List<PsiClass> assigned = classes;
+            report.assigned = ReadAction.compute(() -> assigned.stream()
+                    .filter(PsiClass::isValid)
+                    .map(PsiClass::getQualifiedName)
+                    .filter(Objects::nonNull)
+                    .toList());
+            if (shard != null) {
+                report.shardIndex = shard[0];
+                report.shardCount = shard[1];
+                report.shardStrategy = strategy.name();
+            }
+
+            Path reportFile = options.containsKey("report")
+                    ? Paths.get(options.get("report")).toAbsolutePath()
+                    : projectDir.resolve(shard == null
+                            ? "jaipilot-report.json"
+                            : "jaipilot-report-shard-" + (shard[0] + 1) + "-of-" + shard[1] + ".json");
+            return writeReport(report, reportFile, strict);
+        } finally {
+            ApplicationManager.getApplication().invokeAndWait(() -> {
+                FileDocumentManager.getInstance().saveAllDocuments();
+                ProjectManager.getInstance().closeAndDispose(project);
+            });
+            if (fake != null) {
+                fake.stop();
+                JAIPilotHttpService.overrideBaseUrl(null);
+            }
+        }
+    }
+
+    /** Combines shard manifests (see {@link BatchSharding#merge}) into one report. */
+    private static int merge(Path out, List<String> manifests, boolean strict) throws Exception {
+        if (manifests.isEmpty()) {
+            System.err.println("JAIPilot: --merge needs at least one shard manifest");
+            return EXIT_USAGE;
+        }
+        List<BatchReport> shards = new ArrayList<>();
+        for (String manifest : manifests) {
+            shards.add(MAPPER.readValue(Paths.get(manifest).toFile(), BatchReport.class));
+        }
+        BatchReport merged;
+        try {
+            merged = BatchSharding.merge(shards);
+        } catch (IllegalArgumentException e) {
+            System.err.println("JAIPilot: " + e.getMessage());
+            return EXIT_USAGE;
+        }
+        if (!merged.missingShards.isEmpty()) {
+            System.err.println("JAIPilot: no manifest for shard(s) "
+                    + merged.missingShards.stream().map(i -> String.valueOf(i + 1)).toList());
+        }
+        return writeReport(merged, out, strict);
+    }
+
+    private static int writeReport(BatchReport report, Path reportFile, boolean strict) throws Exception {
+        Files.createDirectories(reportFile.getParent());
+        MAPPER.writeValue(reportFile.toFile(), report);
+
+        System.out.println("JAIPilot: " + report.succeeded + " succeeded, " + report.incomplete + " incomplete, "
+                + report.failed + " failed, " + report.cancelled + " cancelled, " + report.missing() + " not run"
+                + " – report: " + reportFile);
+
+        boolean failed = report.failed > 0 || report.cancelled > 0 || report.missing() > 0
+                || !report.missingShards.isEmpty() || (strict && report.incomplete > 0);
+        return failed ? EXIT_FAILED : EXIT_OK;
+    }
+
+    /** "2/8" → {1, 8}; null when absent or malformed. */
+    private static int @Nullable [] parseShard(@Nullable String spec) {
+        if (spec == null) return null;
+        String[] parts = spec.split("/");
+        if (parts.length != 2) return null;
+        try {
+            int index = Integer.parseInt(parts[0].trim());
+            int count = Integer.parseInt(parts[1].trim());
+            if (count < 1 || index < 1 || index > count) return null;
+            return new int[]{index - 1, count};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static @Nullable Integer parsePositive(@Nullable String spec) {
+        if (spec == null) return null;
+        try {
+            int value = Integer.parseInt(spec.trim());
+            return value < 1 ? null : value;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Fully qualified class names and package names; packages contribute production classes only. */
+    private static List<PsiClass> resolveTargets(Project project, List<String> targets) {
+        return ReadAction.compute(() -> {
+            GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+            JavaPsiFacade facade = JavaPsiFacade.getInstance(project);
+            ProjectFileIndex index = ProjectFileIndex.getInstance(project);
+            Set<PsiClass> classes = new LinkedHashSet<>();
+            for (String target : targets) {
+                PsiClass psiClass = facade.findClass(target, scope);
+                if (psiClass != null) {
+                    classes.add(psiClass);
+                    continue;
+                }
+                PsiPackage psiPackage = facade.findPackage(target);
+                if (psiPackage == null) {
+                    System.err.println("JAIPilot: ignoring unknown class or package " + target);
+                    continue;
+                }
+                for (PsiClass candidate : GenerateTestAction.collectClasses(psiPackage.getDirectories(scope))) {
+                    PsiFile file = candidate.getContainingFile();
+                    if (file != null && file.getVirtualFile() != null && !index.isInTestSourceContent(file.getVirtualFile())) {
+                        classes.add(candidate);
+                    }
+                }
+            }
+            return new ArrayList<>(classes);
+        });
+    }
+
+    private static @Nullable PsiDirectory resolveTestRoot(Project project, Path projectDir, @Nullable String path) {
+        if (StringUtil.isEmptyOrSpaces(path)) return null;
+        String absolute = FileUtil.toSystemIndependentName(projectDir.resolve(path).normalize().toString());
+        return ReadAction.compute(() -> GenerateTestAction.stringPathToPsiDirectory(project, absolute));
+    }
+}
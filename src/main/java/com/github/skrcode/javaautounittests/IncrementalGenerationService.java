@@ -0,0 +1,222 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.settings.AIProjectSettings;
+import com.github.skrcode.javaautounittests.settings.AISettings;
+import com.github.skrcode.javaautounittests.settings.GenerationQueueState;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.execution.util.ExecUtil;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.psi.*;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.io.DigestUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Change-driven generation: only production classes that changed are (re)generated.
+ *
+ * In the IDE, saved {@code .java} files under production sources are collected and queued as one
+ * batch once edits have been quiet for {@link #DEBOUNCE_MS} (opt-in, see
+ * {@link AISettings#isIncrementalGeneration()}). Headless runs get the same filtering for the files
+ * of a git diff range, see {@link HeadlessGenerationStarter}.
+ *
+ * Either way a class is skipped while its test class ({@code cutName + "Test.java"} under the test
+ * root) exists and last went green against the very same CUT source.
+ */
+@Service(Service.Level.PROJECT)
+public final class IncrementalGenerationService implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(IncrementalGenerationService.class);
+    private static final long DEBOUNCE_MS = 5_000;
+
+    private final Project project;
+    private final Set<VirtualFile> changed = new LinkedHashSet<>();
+    private ScheduledFuture<?> flush;
+
+    public IncrementalGenerationService(Project project) {
+        this.project = project;
+    }
+
+    public static IncrementalGenerationService getInstance(@NotNull Project project) {
+        return project.getService(IncrementalGenerationService.class);
+    }
+
+    /** Registered in plugin.xml as a project listener; forwards saved files to the service. */
+    public static final class ChangeListener implements BulkFileListener {
+        private final Project project;
+
+        public ChangeListener(Project project) {
+            this.project = project;
+        }
+
+        @Override
+        public void after(@NotNull List<? extends VFileEvent> events) {
+            if (!AISettings.getInstance().isIncrementalGeneration()) return;
+            if (ApplicationManager.getApplication().isHeadlessEnvironment() || project.isDisposed()) return;
+
+            List<VirtualFile> files = new ArrayList<>();
+            for (VFileEvent event : events) {
+                // Saves from the editor only: branch switches, pulls and external refreshes change
+                // files too, and must not start a batch for everything they touched
+                if (!(event instanceof VFileContentChangeEvent change) || !change.isFromSave()) continue;
+                VirtualFile file = change.getFile();
+                if (isProductionSource(project, file)) files.add(file);
+            }
+            if (!files.isEmpty()) getInstance(project).fileChanged(files);
+        }
+    }
+
+    /** Collects the files and (re)starts the quiet period; the batch goes out when it ends. */
+    private synchronized void fileChanged(List<VirtualFile> files) {
+        changed.addAll(files);
+        if (flush != null) flush.cancel(false);
+        flush = AppExecutorUtil.getAppScheduledExecutorService().schedule(this::flush, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        List<VirtualFile> files;
+        synchronized (this) {
+            files = new ArrayList<>(changed);
+            changed.clear();
+            flush = null;
+        }
+        if (project.isDisposed() || AISettings.getInstance().getProKey().isEmpty()) return;
+
+        DumbService.getInstance(project).runWhenSmart(() -> AppExecutorUtil.getAppExecutorService().execute(() -> {
+            String testDir = AIProjectSettings.getInstance(project).getTestDirectory();
+            PsiDirectory testRoot = StringUtil.isEmptyOrSpaces(testDir)
+                    ? null
+                    : ReadAction.compute(() -> GenerateTestAction.stringPathToPsiDirectory(project, testDir));
+            if (testRoot == null) {
+                LOG.info("JAIPilot change-driven generation skipped: no test directory configured");
+                return;
+            }
+
+            GenerationQueueState queue = GenerationQueueState.getInstance(project);
+            List<PsiClass> stale = new ArrayList<>();
+            for (PsiClass clazz : needingGeneration(project, classesIn(project, files), testRoot)) {
+                // Already queued or running, e.g. saved again while its batch is still going
+                GenerationQueueState.Entry entry = queue.get(qualifiedName(clazz));
+                if (entry != null && (entry.status == GenerationQueueState.Status.PENDING
+                        || entry.status == GenerationQueueState.Status.IN_PROGRESS)) continue;
+                stale.add(clazz);
+            }
+            BulkGeneratorService.enqueue(project, stale, testRoot);
+        }));
+    }
+
+    /** Top-level production classes declared in the files; test sources and non-Java files are ignored. */
+    public static List<PsiClass> classesIn(@NotNull Project project, @NotNull Collection<VirtualFile> files) {
+        return ReadAction.compute(() -> {
+            Set<PsiClass> classes = new LinkedHashSet<>();
+            PsiManager psiManager = PsiManager.getInstance(project);
+            for (VirtualFile file : files) {
+                if (!file.isValid() || !isProductionSource(project, file)) continue;
+                if (psiManager.findFile(file) instanceof PsiJavaFile javaFile) {
+                    classes.addAll(List.of(javaFile.getClasses()));
+                }
+            }
+            return new ArrayList<>(classes);
+        });
+    }
+
+    /** The classes whose tests are missing, never went green, or went green for an older CUT source. */
+    public static List<PsiClass> needingGeneration(@NotNull Project project, @NotNull List<PsiClass> classes,
+                                                   @NotNull PsiDirectory testRoot) {
+        GenerationQueueState queue = GenerationQueueState.getInstance(project);
+        List<PsiClass> out = new ArrayList<>();
+        for (PsiClass clazz : classes) {
+            String fqn = qualifiedName(clazz);
+            if (fqn == null) continue;
+            GenerationQueueState.Entry entry = queue.get(fqn);
+            if (entry == null || entry.greenCutHash.isEmpty() || testFile(clazz, testRoot) == null) {
+                out.add(clazz);
+                continue;
+            }
+            // Same hash as TestGenerationWorker computes, so formatting-only edits that the LLM never sees do not count
+            String cutHash = DigestUtil.sha256Hex(CUTUtil.cleanedSourceForLLM(project, clazz).getBytes(StandardCharsets.UTF_8));
+            if (!cutHash.equals(entry.greenCutHash)) out.add(clazz);
+        }
+        return out;
+    }
+
+    /**
+     * Files added, modified or renamed since {@code revision} (working tree included) plus untracked
+     * ones, limited to {@code dir} and its subdirectories.
+     */
+    public static List<VirtualFile> filesChangedSince(@NotNull Path dir, @NotNull String revision) throws Exception {
+        Set<String> paths = new LinkedHashSet<>();
+        paths.addAll(git(dir, "diff", "--name-only", "--relative", "--diff-filter=ACMR", revision, "--"));
+        paths.addAll(git(dir, "ls-files", "--others", "--exclude-standard"));
+
+        List<VirtualFile> files = new ArrayList<>();
+        for (String path : paths) {
+            if (!path.endsWith(".java")) continue;
+            VirtualFile file = LocalFileSystem.getInstance().refreshAndFindFileByNioFile(dir.resolve(path));
+            if (file != null) files.add(file);
+        }
+        return files;
+    }
+
+    private static List<String> git(Path dir, String... args) throws Exception {
+        GeneralCommandLine command = new GeneralCommandLine("git")
+                .withParameters(args)
+                .withWorkDirectory(dir.toFile())
+                .withCharset(StandardCharsets.UTF_8);
+        ProcessOutput output = ExecUtil.execAndGetOutput(command);
+        if (output.getExitCode() != 0) {
+            throw new IllegalStateException("git " + String.join(" ", args) + " failed: " + output.getStderr().trim());
+        }
+        return output.getStdoutLines();
+    }
+
+    private static boolean isProductionSource(Project project, VirtualFile file) {
+        if (!"java".equals(file.getExtension())) return false;
+        ProjectFileIndex index = ProjectFileIndex.getInstance(project);
+        return index.isInSourceContent(file) && !index.isInTestSourceContent(file);
+    }
+
+    /** The CUT's test class under {@code testRoot}, following the {@code cutName + "Test.java"} convention. */
+    private static @Nullable VirtualFile testFile(PsiClass clazz, PsiDirectory testRoot) {
+        return ReadAction.compute(() -> {
+            if (!clazz.isValid() || !(clazz.getContainingFile() instanceof PsiJavaFile javaFile)) return null;
+            String packagePath = javaFile.getPackageName().replace('.', '/');
+            String relative = (packagePath.isEmpty() ? "" : packagePath + "/") + clazz.getName() + "Test.java";
+            return testRoot.getVirtualFile().findFileByRelativePath(relative);
+        });
+    }
+
+    private static @Nullable String qualifiedName(PsiClass clazz) {
+        return ReadAction.compute(() -> clazz.isValid() ? clazz.getQualifiedName() : null);
+    }
+
+    @Override
+    public synchronized void dispose() {
+        if (flush != null) flush.cancel(false);
+        changed.clear();
+    }
+}
@@ -4,34 +4,55 @@
 
 package com.github.skrcode.javaautounittests;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.skrcode.javaautounittests.DTOs.Content;
 import com.github.skrcode.javaautounittests.DTOs.PromptResponseOutput;
 import com.github.skrcode.javaautounittests.settings.AISettings;
+import com.github.skrcode.javaautounittests.settings.BackendCircuitBreaker;
 import com.github.skrcode.javaautounittests.settings.ConsolePrinter;
+import com.github.skrcode.javaautounittests.settings.GenerationRun;
+import com.github.skrcode.javaautounittests.settings.JAIPilotHttpService;
 import com.github.skrcode.javaautounittests.settings.telemetry.Telemetry;
 import com.intellij.execution.ui.ConsoleView;
-import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.net.URI;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * Unified blocking façade over JAIPilot LLM API (Pro & Non-Pro).
+ * Unified async façade over JAIPilot LLM API (Pro & Non-Pro).
  * Uses one API, returns streamed JSON output.
  */
 public final class JAIPilotLLM {
 
+    private static final Logger LOG = Logger.getInstance(JAIPilotLLM.class);
     private static final ObjectMapper MAPPER = new ObjectMapper();
     private static final int MAX_RETRIES = 10;
 
@@ -105,129 +126,798 @@ public final class JAIPilotLLM {
         );
     }
 
-    public static PromptResponseOutput generateContent(
+    /**
+     * Creates the LLM job and polls it until it is done. Nothing blocks while waiting: HTTP calls
+     * go through {@code sendAsync} and poll / backoff delays are scheduled on the shared
+     * scheduler, so any number of classes can wait on the model without holding a thread.
+     * <p>
+     * {@code onPartial}, when given, receives the {@code apply_test_class} arguments the model has
+     * produced so far each time a poll returns while the job is still running; backends without
+     * partial results simply never call it. Within a {@code conversation} the backend already
+     * holds, only the entries it does not have yet are uploaded. Retries and cache replays are
+     * reported to {@code signals} as they happen, so the pipeline can back off during an outage
+     * instead of after the last retry.
+     */
+    public static CompletableFuture<PromptResponseOutput> generateContentAsync(
             String testClassName,
             List<Content> contents,
             ConsoleView myConsole,
-            int attempt
-            , @NotNull ProgressIndicator indicator
-    ) throws Exception {
-        long start = System.nanoTime();
-        Telemetry.genStarted(testClassName, String.valueOf(attempt));
+            int attempt,
+            @NotNull GenerationRun run,
+            @Nullable Consumer<Map<String, Object>> onPartial,
+            @Nullable Conversation conversation,
+            @Nullable GenerationPipeline.RemoteSignals signals
+    ) {
+        LlmResponseCache.Mode cacheMode = LlmResponseCache.mode();
+        if (cacheMode == LlmResponseCache.Mode.OFF) {
+            return new JobCall(testClassName, contents, myConsole, attempt, run, onPartial, conversation, signals).start();
+        }
 
-        int retries = 0;
-        long backoffMillis = 1000; // start with 1s
+        LlmResponseCache cache = LlmResponseCache.getInstance();
+        String key;
+        try {
+            key = LlmResponseCache.key(contents, attempt);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        PromptResponseOutput recorded = cache.get(key);
+        if (recorded != null) {
+            ConsolePrinter.success(myConsole, "Replayed recorded model output");
+            if (signals != null) signals.replayed();
+            return CompletableFuture.completedFuture(recorded);
+        }
+        if (cacheMode == LlmResponseCache.Mode.REPLAY_ONLY) {
+            return CompletableFuture.failedFuture(new IllegalStateException(
+                    "Replay-only mode: no recorded model output for " + testClassName + " attempt " + attempt));
+        }
+        return new JobCall(testClassName, contents, myConsole, attempt, run, onPartial, conversation, signals).start()
+                .thenApply(output -> {
+                    if (output.getErrorCode() == 0 && output.getContent() != null) cache.put(key, output);
+                    return output;
+                });
+    }
 
-        while (true) {
-            try {
-                // --- 1. Create Job ---
-                Map<String, Object> body = new LinkedHashMap<>();
-                body.put("attemptNumber", attempt);
-                body.put("contents", contents);
-                String requestJson = MAPPER.writeValueAsString(body);
+    /**
+     * The backend's copy of one class's conversation, so an attempt does not upload the whole
+     * history again.
+     *
+     * Every request carries the session id. Once the backend echoes it on job creation it holds the
+     * history, and later requests send {@code baseCount} (how many leading entries it already has)
+     * plus only the entries after those. The history is not append-only – each attempt drops the
+     * previous output and error – so the shared prefix is recomputed per request. A backend that lost
+     * the session answers 409 or 410 and gets the full list again.
+     */
+    public static final class Conversation {
+        private final String id = UUID.randomUUID().toString();
+        private List<Content> serverHistory;
+
+        /** Number of leading entries of {@code request} the backend already has; 0 when it holds nothing. */
+        synchronized int sharedPrefix(List<Content> request) {
+            if (serverHistory == null) return 0;
+            int n = 0;
+            // Entries are reused across attempts, so identity is enough and avoids comparing sources
+            while (n < request.size() && n < serverHistory.size() && request.get(n) == serverHistory.get(n)) n++;
+            return n;
+        }
+
+        synchronized void confirmed(List<Content> request) {
+            serverHistory = new ArrayList<>(request);
+        }
 
-                // Select key based on mode
-                String headerName;
-                String headerValue;
-                String key = AISettings.getInstance().getProKey();
-                headerName = "Authorization";
-                headerValue = "Bearer " + key;
+        synchronized void lost() {
+            serverHistory = null;
+        }
+    }
 
-                HttpClient http = HttpClient.newBuilder()
-                        .connectTimeout(Duration.ofSeconds(30))
-                        .build();
+    /** State machine of one request: create job → wait for it until done, restarted with backoff on errors. */
+    private static final class JobCall {
+        private static final int LONG_POLL_WAIT_MS = 25000; // 25 s, below common proxy idle timeouts
+        private static final int MAX_POLLING_MS = 450000; // 450 s
+
+        private final String testClassName;
+        private final List<Content> contents;
+        private final ConsoleView myConsole;
+        private final int attempt;
+        private final GenerationRun run;
+        private final Consumer<Map<String, Object>> onPartial;
+        private final Conversation conversation;
+        private final GenerationPipeline.RemoteSignals signals;
+        private final CompletableFuture<PromptResponseOutput> result = new CompletableFuture<>();
+        private final HttpClient http = JAIPilotHttpService.getInstance().client();
+        private final BackendCircuitBreaker breaker = JAIPilotHttpService.getInstance().breaker();
+        private final long start = System.nanoTime();
+
+        /**
+         * Request bodies go out as plain JSON until the backend advertises gzip with an
+         * {@code Accept-Encoding} response header (RFC 7694). Until a gzipped request has been
+         * accepted, a 400, 415 or 5xx answer to it is taken as the backend not decoding it after all;
+         * later only a 415 is. Either way the job is sent again as plain JSON, which stays the
+         * encoding for the rest of the session.
+         */
+        enum Gzip { UNKNOWN, ADVERTISED, CONFIRMED, REJECTED }
+
+        private static volatile Gzip gzipState = Gzip.UNKNOWN;
+
+        static boolean gzipAccepted() {
+            return gzipState == Gzip.ADVERTISED || gzipState == Gzip.CONFIRMED;
+        }
+
+        static void noteAcceptEncoding(HttpHeaders headers) {
+            if (gzipState != Gzip.UNKNOWN) return;
+            for (String value : headers.allValues("Accept-Encoding")) {
+                if (value.toLowerCase(Locale.ROOT).contains("gzip")) gzipState = Gzip.ADVERTISED;
+            }
+        }
+
+        /** Records the answer to a request sent gzipped; true when it was rejected for the encoding. */
+        static boolean gzipRejected(int statusCode) {
+            if (statusCode / 100 == 2) {
+                if (gzipState == Gzip.ADVERTISED) gzipState = Gzip.CONFIRMED;
+                return false;
+            }
+            boolean rejected = statusCode == 415
+                    || gzipState == Gzip.ADVERTISED && (statusCode == 400 || statusCode / 100 == 5);
+            if (rejected) {
+                gzipState = Gzip.REJECTED;
+                LOG.info("JAIPilot backend rejected a gzipped request with " + statusCode + ", sending plain JSON");
+            }
+            return rejected;
+        }
+
+        private volatile CompletableFuture<?> inFlight;
+        private byte[] requestBody;
+        private boolean requestBodyGzipped;
+        private int requestBodyBase;
+        private int retries = 0;
+        private long backoffMillis = 1000; // start with 1s
+
+        JobCall(String testClassName, List<Content> contents, ConsoleView myConsole, int attempt, GenerationRun run,
+                @Nullable Consumer<Map<String, Object>> onPartial, @Nullable Conversation conversation,
+                @Nullable GenerationPipeline.RemoteSignals signals) {
+            this.testClassName = testClassName;
+            this.contents = contents;
+            this.myConsole = myConsole;
+            this.attempt = attempt;
+            this.run = run;
+            this.onPartial = onPartial;
+            this.conversation = conversation;
+            this.signals = signals;
+        }
+
+        CompletableFuture<PromptResponseOutput> start() {
+            Telemetry.genStarted(testClassName, String.valueOf(attempt));
+            run.cancellable(result);
+            result.whenComplete((r, t) -> {
+                CompletableFuture<?> pending = inFlight;
+                if (pending != null) pending.cancel(true);
+            });
+            createJob();
+            return result;
+        }
+
+        // --- 1. Create Job ---
+        private void createJob() {
+            if (result.isDone()) return;
+            int base = conversation == null ? 0 : conversation.sharedPrefix(contents);
+            if (!JobBatcher.enabled()) {
+                createSingleJob(base);
+                return;
+            }
+            // Parallel classes creating jobs at the same moment share one request
+            CompletableFuture<JobBatcher.Reply> batched = JobBatcher.create(requestFields(base));
+            inFlight = batched;
+            batched.whenCompleteAsync((reply, error) -> {
+                if (result.isDone()) return;
+                if (error != null) {
+                    retry(error);
+                } else if (reply == null) {
+                    createSingleJob(base);
+                } else {
+                    try {
+                        created(reply.status(), reply.body(), false, base);
+                    } catch (Throwable t) {
+                        retry(t);
+                    }
+                }
+            }, AppExecutorUtil.getAppExecutorService());
+        }
 
-                indicator.checkCanceled();
-                HttpRequest createJobReq = HttpRequest.newBuilder()
-                        .uri(URI.create("https://otxfylhjrlaesjagfhfi.supabase.co/functions/v1/invoke-junit-llm-patch"))
+        private void createSingleJob(int base) {
+            HttpRequest createJobReq;
+            boolean gzip = gzipAccepted();
+            try {
+                HttpRequest.Builder builder = HttpRequest.newBuilder()
+                        .uri(JAIPilotHttpService.function("invoke-junit-llm-patch"))
                         .timeout(Duration.ofSeconds(30))
                         .header("Accept", "application/json")
                         .header("Content-Type", "application/json")
-                        .header(headerName, headerValue == null ? "" : headerValue)
-                        .POST(HttpRequest.BodyPublishers.ofString(requestJson, StandardCharsets.UTF_8))
+                        .header("Authorization", authorization());
+                if (gzip) builder.header("Content-Encoding", "gzip");
+                createJobReq = builder
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody(gzip, base)))
                         .build();
+            } catch (Throwable t) {
+                retry(t);
+                return;
+            }
 
-                HttpResponse<String> createJobResp =
-                        http.send(createJobReq, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            send(createJobReq, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8),
+                    createJobResp -> {
+                        noteAcceptEncoding(createJobResp.headers());
+                        created(createJobResp.statusCode(), createJobResp.body(), gzip, base);
+                    });
+        }
 
-                if (createJobResp.statusCode() / 100 == 4) {
-                    PromptResponseOutput promptResponseOutput = new PromptResponseOutput();
-                    promptResponseOutput.setErrorCode(createJobResp.statusCode());
-                    promptResponseOutput.setErrorBody(createJobResp.body());
-                    return promptResponseOutput;
-                }
-                if (createJobResp.statusCode() / 100 != 2) {
-                    throw new RuntimeException("Error : " +
-                            createJobResp.statusCode() + " " + createJobResp.body());
+        /** Handles the backend's answer to a job creation, sent alone or as part of a batch. */
+        private void created(int statusCode, String body, boolean gzip, int base) throws IOException {
+            if (gzip && gzipRejected(statusCode)) {
+                createJob();
+                return;
+            }
+            if (base > 0 && (statusCode == 409 || statusCode == 410)) {
+                // Backend no longer has the conversation – upload it in full
+                conversation.lost();
+                createJob();
+                return;
+            }
+            if (statusCode / 100 == 4) {
+                PromptResponseOutput promptResponseOutput = new PromptResponseOutput();
+                promptResponseOutput.setErrorCode(statusCode);
+                promptResponseOutput.setErrorBody(body);
+                result.complete(promptResponseOutput);
+                return;
+            }
+            if (statusCode / 100 != 2) {
+                throw new RuntimeException("Error : " + statusCode + " " + body);
+            }
+
+            JsonNode createJobJson = MAPPER.readTree(body);
+            if (conversation != null && conversation.id.equals(createJobJson.path("sessionId").asText())) {
+                conversation.confirmed(contents);
+            }
+            poll(createJobJson.get("jobId").asText(), System.nanoTime());
+        }
+
+        /**
+         * The job payload, serialized once per call and replayed on retries. Jackson writes straight
+         * into the gzip stream, so the uncompressed JSON of CUT, tests and fetched sources is never
+         * held in memory as a whole. With {@code base > 0} only the entries after the backend's
+         * copy of the conversation are included.
+         */
+        private byte[] requestBody(boolean gzip, int base) throws IOException {
+            if (requestBody == null || requestBodyGzipped != gzip || requestBodyBase != base) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+                try (OutputStream out = gzip ? new GZIPOutputStream(bytes, 16 * 1024) : bytes) {
+                    MAPPER.writeValue(out, requestFields(base));
                 }
+                requestBody = bytes.toByteArray();
+                requestBodyGzipped = gzip;
+                requestBodyBase = base;
+            }
+            return requestBody;
+        }
 
-                JsonNode createJobJson = MAPPER.readTree(createJobResp.body());
-                String jobId = createJobJson.get("jobId").asText();
+        private Map<String, Object> requestFields(int base) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("attemptNumber", attempt);
+            if (conversation != null) body.put("sessionId", conversation.id);
+            if (base > 0) {
+                body.put("baseCount", base);
+                body.put("delta", contents.subList(base, contents.size()));
+            } else {
+                body.put("contents", contents);
+            }
+            return body;
+        }
 
-                // --- 2. Poll until done ---
-                int pollTime = 0;
-                int sleepTime = 5000; // 5 s
-                int maxPollingTime = 450000; // 450 s
-                while (true) {
-                    indicator.checkCanceled();
-                    if(pollTime > maxPollingTime) {
-                        throw new RuntimeException("Job timed out after " + maxPollingTime + "seconds");
+        // --- 2. Wait until done ---
+        /**
+         * Long-polls the job: the backend holds the request for up to {@link #LONG_POLL_WAIT_MS} and
+         * answers as soon as the job finishes, so the result arrives without polling latency. A backend
+         * that answers right away degrades this to plain polling paced by {@link PollSchedule}.
+         */
+        private void poll(String jobId, long jobStart) {
+            if (result.isDone()) return;
+            if (millisSince(jobStart) > MAX_POLLING_MS) {
+                retry(new RuntimeException("Job timed out after " + MAX_POLLING_MS / 1000 + " seconds"));
+                return;
+            }
+            long sent = System.nanoTime();
+            if (!JobBatcher.enabled()) {
+                pollSingle(jobId, jobStart, sent);
+                return;
+            }
+            // Waits together with the jobs of the other classes in one multi-id request
+            CompletableFuture<JobStatus> batched = JobBatcher.poll(jobId, onPartial != null);
+            inFlight = batched;
+            batched.whenCompleteAsync((job, error) -> {
+                if (result.isDone()) return;
+                if (error != null) {
+                    retry(error);
+                } else if (job == null) {
+                    pollSingle(jobId, jobStart, sent);
+                } else {
+                    try {
+                        polled(job, jobId, jobStart, sent);
+                    } catch (Throwable t) {
+                        retry(t);
                     }
-                    HttpRequest pollReq = HttpRequest.newBuilder()
-                            .uri(URI.create("https://otxfylhjrlaesjagfhfi.supabase.co/functions/v1/fetch-job?id=" + jobId))
-                            .timeout(Duration.ofSeconds(30))
-                            .header("Accept", "application/json")
-                            .header(headerName, headerValue == null ? "" : headerValue)
-                            .GET()
-                            .build();
-
-                    HttpResponse<String> pollResp =
-                            http.send(pollReq, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+                }
+            }, AppExecutorUtil.getAppExecutorService());
+        }
 
+        private void pollSingle(String jobId, long jobStart, long sent) {
+            HttpRequest pollReq = HttpRequest.newBuilder()
+                    .uri(JAIPilotHttpService.function("fetch-job?id=" + jobId + "&waitMs=" + LONG_POLL_WAIT_MS
+                            + (onPartial != null ? "&partial=1" : "")))
+                    .timeout(Duration.ofMillis(LONG_POLL_WAIT_MS + 10_000))
+                    .header("Accept", "application/json")
+                    .header("Authorization", authorization())
+                    .GET()
+                    .build();
+
+            send(pollReq, HttpResponse.BodyHandlers.ofInputStream(), pollResp -> {
+                JobStatus job;
+                try (InputStream body = pollResp.body()) {
                     if (pollResp.statusCode() / 100 != 2) {
                         throw new RuntimeException("API error (job-status): " +
-                                pollResp.statusCode() + " " + pollResp.body());
+                                pollResp.statusCode() + " " + new String(body.readAllBytes(), StandardCharsets.UTF_8));
                     }
+                    job = readJobStatus(body);
+                }
+                polled(job, jobId, jobStart, sent);
+            });
+        }
+
+        private void polled(JobStatus job, String jobId, long jobStart, long sent) {
+            String status = job.status();
+
+            if ("done".equalsIgnoreCase(status)) {
+                PromptResponseOutput out = job.output();
+                if (out == null) throw new RuntimeException("Job finished without output");
+
+                PollSchedule.recordJob(millisSince(jobStart));
+                long end = System.nanoTime();
+                Telemetry.genCompleted(testClassName, String.valueOf(attempt), (end - start) / 1_000_000);
+                ConsolePrinter.success(myConsole,
+                        "Received model output");
+                result.complete(out);
+            } else if ("error".equalsIgnoreCase(status)) {
+                throw new RuntimeException("Job failed: " + job.message());
+            } else {
+                if (onPartial != null && job.partial() != null) deliverPartial(job.partial());
+                // A held request already waited; only an immediate answer needs a pause before the next poll
+                long delay = PollSchedule.nextDelay(millisSince(jobStart)) - millisSince(sent);
+                schedule(() -> poll(jobId, jobStart), Math.max(0, delay));
+            }
+        }
+
+        /** A failing listener must not restart the job, so it is kept out of the retry path. */
+        private void deliverPartial(Map<String, Object> partial) {
+            try {
+                onPartial.accept(partial);
+            } catch (Throwable t) {
+                if (GenerationRun.isCancellation(t)) throw t;
+                LOG.warn("Applying partial output of " + testClassName + " failed", t);
+            }
+        }
 
-                    JsonNode pollJson = MAPPER.readTree(pollResp.body());
-                    String status = pollJson.get("status").asText();
+        private void retry(Throwable t) {
+            if (result.isDone()) return;
+            Throwable cause = GenerationRun.unwrap(t);
+            retries++;
+            if (retries > MAX_RETRIES) {
+                Telemetry.genFailed(testClassName, String.valueOf(attempt), cause.getMessage());
+                ConsolePrinter.error(myConsole,
+                        "Request failed after " + retries + " retries: " + cause.getMessage());
+                result.completeExceptionally(new Exception("Max retries reached: " + cause.getMessage(), cause));
+                return;
+            }
+
+            if (signals != null) signals.retrying(cause.getMessage());
 
-                    if ("done".equalsIgnoreCase(status)) {
-                        String output = pollJson.get("output").asText();
-                        PromptResponseOutput out = MAPPER.readValue(output, PromptResponseOutput.class);
+            if (!breaker.tryRetry()) {
+                // Budget shared by all classes is spent: the breaker is now open and the retry parks until a probe succeeds
+                ConsolePrinter.warn(myConsole, "Backend failing for many requests – pausing until it recovers");
+            }
 
-                        long end = System.nanoTime();
-                        Telemetry.genCompleted(testClassName, String.valueOf(attempt), (end - start) / 1_000_000);
-                        ConsolePrinter.success(myConsole,
-                                "Received model output");
-                        return out;
-                    } else if ("error".equalsIgnoreCase(status)) {
-                        throw new RuntimeException("Job failed: " + pollJson.get("output").asText());
+            long sleepMillis = backoffMillis + (long) (Math.random() * 250); // jitter
+            ConsolePrinter.warn(myConsole,
+                    "Retrying request (" + retries + "/" + MAX_RETRIES + ") after " + sleepMillis + "ms: " + cause.getMessage());
+
+            schedule(this::createJob, sleepMillis);
+            backoffMillis = Math.min(backoffMillis * 2, 30_000); // cap at 30s
+        }
+
+        /**
+         * Sends once the circuit breaker lets calls through (parked as a future while it is open) and
+         * reports the outcome back to it.
+         */
+        private <T> void send(HttpRequest request, HttpResponse.BodyHandler<T> handler, ResponseStep<T> next) {
+            if (result.isDone()) return;
+            CompletableFuture<Boolean> permit = breaker.permit();
+            if (!permit.isDone()) ConsolePrinter.warn(myConsole, "Backend unavailable – waiting for it to recover");
+            inFlight = permit;
+            permit.thenAccept(probe -> {
+                if (result.isDone()) {
+                    if (probe) breaker.abandonProbe();
+                    return;
+                }
+                CompletableFuture<HttpResponse<T>> call = http.sendAsync(request, handler);
+                inFlight = call;
+                // Steps may read a streamed body, which must not block the HTTP client's own threads
+                call.whenCompleteAsync((response, error) -> {
+                    if (error == null) {
+                        breaker.record(response.statusCode());
+                    } else if (!GenerationRun.isCancellation(error)) {
+                        breaker.onFailure();
+                    } else if (probe) {
+                        breaker.abandonProbe();
+                    }
+                    if (result.isDone()) return;
+                    if (error != null) {
+                        retry(error);
+                        return;
+                    }
+                    try {
+                        next.accept(response);
+                    } catch (Throwable t) {
+                        retry(t);
                     }
+                }, AppExecutorUtil.getAppExecutorService());
+            });
+        }
+
+        private void schedule(Runnable step, long delayMillis) {
+            if (result.isDone()) return;
+            AppExecutorUtil.getAppScheduledExecutorService().schedule(step, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private static long millisSince(long nanos) {
+            return (System.nanoTime() - nanos) / 1_000_000;
+        }
+
+    }
+
+    /**
+     * Bulk runs: job creations and polls that parallel classes issue within {@link #WINDOW_MS} of each
+     * other go out as one {@code invoke-junit-llm-patch-batch} and one multi-id {@code fetch-jobs}
+     * request, instead of one request and one poll loop per class. A request alone in its window
+     * keeps using the single-job endpoints, and a backend without the batch endpoints (404 or 405)
+     * turns batching off for the rest of the session.
+     *
+     * Each caller gets what it would have got on its own – the create answer of its job as status
+     * and body, or its {@link JobStatus} – or {@code null}, meaning "send it yourself". Only account
+     * errors (401, 402, 403, 429) are passed on to every job of a batch; a batch that fails as a
+     * whole for any other reason answers {@code null}, so errors are retried per class as before
+     * and one broken batch does not spend the shared retry budget once per job. Batches are capped
+     * by job count and by serialized size.
+     */
+    private static final class JobBatcher {
+        private static final long WINDOW_MS = 50;
+        private static final int MAX_BATCH = 25;
+        /** Uncompressed, well below common request body limits. */
+        private static final long MAX_BATCH_BYTES = 4L * 1024 * 1024;
+        private static final Set<Integer> ACCOUNT_STATUSES = Set.of(401, 402, 403, 429);
+
+        private static volatile boolean supported = true;
+
+        private static final List<Creation> creations = new ArrayList<>();
+        private static final Map<String, Waiter> waiters = new LinkedHashMap<>();
+        private static boolean creationsScheduled;
+        private static boolean pollsScheduled;
+
+        record Reply(int status, String body) {}
+
+        private record Creation(Map<String, Object> fields, CompletableFuture<Reply> reply) {}
+
+        private record Waiter(boolean partial, CompletableFuture<JobStatus> status) {}
+
+        static boolean enabled() {
+            return supported;
+        }
+
+        static CompletableFuture<Reply> create(Map<String, Object> fields) {
+            Creation creation = new Creation(fields, new CompletableFuture<>());
+            synchronized (JobBatcher.class) {
+                creations.add(creation);
+                if (!creationsScheduled) {
+                    creationsScheduled = true;
+                    afterWindow(JobBatcher::flushCreations);
+                }
+            }
+            return creation.reply();
+        }
+
+        static CompletableFuture<JobStatus> poll(String jobId, boolean partial) {
+            Waiter waiter = new Waiter(partial, new CompletableFuture<>());
+            synchronized (JobBatcher.class) {
+                waiters.put(jobId, waiter);
+                if (!pollsScheduled) {
+                    pollsScheduled = true;
+                    afterWindow(JobBatcher::flushPolls);
+                }
+            }
+            return waiter.status();
+        }
+
+        private static void afterWindow(Runnable flush) {
+            AppExecutorUtil.getAppScheduledExecutorService().schedule(flush, WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
+
+        private static void flushCreations() {
+            List<Creation> due;
+            synchronized (JobBatcher.class) {
+                due = new ArrayList<>(creations);
+                creations.clear();
+                creationsScheduled = false;
+            }
+            due.removeIf(creation -> creation.reply().isDone());
+
+            // Each job is serialized once and the batch body assembled from the pieces, so batches
+            // can be cut by size: a body the backend rejects as too large would fail every job in it
+            List<Creation> batch = new ArrayList<>();
+            List<byte[]> jobs = new ArrayList<>();
+            long bytes = 0;
+            for (Creation creation : due) {
+                byte[] job;
+                try {
+                    job = MAPPER.writeValueAsBytes(creation.fields());
+                } catch (Throwable t) {
+                    LOG.warn("Cannot serialize batched job", t);
+                    creation.reply().complete(null);
+                    continue;
+                }
+                if (!batch.isEmpty() && (batch.size() == MAX_BATCH || bytes + job.length > MAX_BATCH_BYTES)) {
+                    dispatch(batch, jobs);
+                    batch = new ArrayList<>();
+                    jobs = new ArrayList<>();
+                    bytes = 0;
+                }
+                batch.add(creation);
+                jobs.add(job);
+                bytes += job.length;
+            }
+            if (!batch.isEmpty()) dispatch(batch, jobs);
+        }
+
+        private static void dispatch(List<Creation> batch, List<byte[]> jobs) {
+            if (batch.size() < 2 || !supported) batch.forEach(creation -> creation.reply().complete(null));
+            else sendCreations(batch, jobs, JobCall.gzipAccepted());
+        }
 
-                    // Wait before next poll
-                    pollTime += sleepTime;
-                    Thread.sleep(sleepTime);
+        private static void flushPolls() {
+            List<Map.Entry<String, Waiter>> due;
+            synchronized (JobBatcher.class) {
+                due = new ArrayList<>(waiters.entrySet());
+                waiters.clear();
+                pollsScheduled = false;
+            }
+            due.removeIf(entry -> entry.getValue().status().isDone());
+            for (int i = 0; i < due.size(); i += MAX_BATCH) {
+                Map<String, Waiter> batch = new LinkedHashMap<>();
+                for (Map.Entry<String, Waiter> entry : due.subList(i, Math.min(due.size(), i + MAX_BATCH))) {
+                    batch.put(entry.getKey(), entry.getValue());
                 }
+                if (batch.size() < 2 || !supported) batch.values().forEach(waiter -> waiter.status().complete(null));
+                else sendPolls(batch);
+            }
+        }
 
+        private static void sendCreations(List<Creation> batch, List<byte[]> jobs, boolean gzip) {
+            List<CompletableFuture<Reply>> callers = batch.stream().map(Creation::reply).toList();
+            HttpRequest request;
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * 1024);
+                try (OutputStream out = gzip ? new GZIPOutputStream(bytes, 16 * 1024) : bytes) {
+                    out.write("{\"jobs\":[".getBytes(StandardCharsets.UTF_8));
+                    for (int i = 0; i < jobs.size(); i++) {
+                        if (i > 0) out.write(',');
+                        out.write(jobs.get(i));
+                    }
+                    out.write("]}".getBytes(StandardCharsets.UTF_8));
+                }
+                HttpRequest.Builder builder = HttpRequest.newBuilder()
+                        .uri(JAIPilotHttpService.function("invoke-junit-llm-patch-batch"))
+                        .timeout(Duration.ofSeconds(60))
+                        .header("Accept", "application/json")
+                        .header("Content-Type", "application/json")
+                        .header("Authorization", authorization());
+                if (gzip) builder.header("Content-Encoding", "gzip");
+                request = builder.POST(HttpRequest.BodyPublishers.ofByteArray(bytes.toByteArray())).build();
             } catch (Throwable t) {
-                indicator.checkCanceled();
-                retries++;
-                if (retries > MAX_RETRIES) {
-                    Telemetry.genFailed(testClassName, String.valueOf(attempt), t.getMessage());
-                    ConsolePrinter.error(myConsole,
-                            "Request failed after " + retries + " retries: " + t.getMessage());
-                    throw new Exception("Max retries reached: " + t.getMessage(), t);
+                LOG.warn("Cannot build batched job request", t);
+                callers.forEach(caller -> caller.complete(null));
+                return;
+            }
+
+            send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8), callers, response -> {
+                int status = response.statusCode();
+                JobCall.noteAcceptEncoding(response.headers());
+                if (gzip && JobCall.gzipRejected(status)) return; // unanswered, so this round goes out one by one in plain JSON
+                if (ACCOUNT_STATUSES.contains(status)) {
+                    // Rejected for the account (key, plan, quota, rate): every job would get the same answer
+                    callers.forEach(caller -> caller.complete(new Reply(status, response.body())));
+                    return;
+                }
+                if (status / 100 == 4) {
+                    // About the batch itself (e.g. 413 or 400): unanswered, so each job goes out on its own
+                    LOG.info("Batched job request rejected with " + status + ", sending jobs one by one");
+                    return;
+                }
+                if (status / 100 != 2) throw new RuntimeException("Error : " + status + " " + response.body());
+
+                // One answer per job, in request order: {"jobId", "sessionId"} or {"status": 409, ...}
+                JsonNode answers = MAPPER.readTree(response.body()).path("jobs");
+                for (int i = 0; i < batch.size(); i++) {
+                    JsonNode job = answers.path(i);
+                    callers.get(i).complete(job.isObject() ? new Reply(job.path("status").asInt(200), job.toString()) : null);
+                }
+            });
+        }
+
+        private static void sendPolls(Map<String, Waiter> batch) {
+            boolean partial = batch.values().stream().anyMatch(Waiter::partial);
+            List<CompletableFuture<JobStatus>> callers = batch.values().stream().map(Waiter::status).toList();
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(JAIPilotHttpService.function("fetch-jobs?ids=" + String.join(",", batch.keySet())
+                            + "&waitMs=" + JobCall.LONG_POLL_WAIT_MS + (partial ? "&partial=1" : "")))
+                    .timeout(Duration.ofMillis(JobCall.LONG_POLL_WAIT_MS + 10_000))
+                    .header("Accept", "application/json")
+                    .header("Authorization", authorization())
+                    .GET()
+                    .build();
+
+            // Held until any of the jobs finishes; the ones still running simply poll again
+            send(request, HttpResponse.BodyHandlers.ofInputStream(), callers, response -> {
+                Map<String, JobStatus> jobs;
+                try (InputStream body = response.body()) {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new RuntimeException("API error (fetch-jobs): " +
+                                response.statusCode() + " " + new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                    }
+                    jobs = readJobStatuses(body);
+                }
+                batch.forEach((jobId, waiter) -> waiter.status().complete(jobs.get(jobId)));
+            });
+        }
+
+        /**
+         * Sends through the circuit breaker like {@code JobCall.send}. Callers the step leaves
+         * unanswered, including all of them on any error, are answered with {@code null}.
+         */
+        private static <T> void send(HttpRequest request, HttpResponse.BodyHandler<T> handler,
+                                     List<? extends CompletableFuture<?>> callers, ResponseStep<T> next) {
+            BackendCircuitBreaker breaker = JAIPilotHttpService.getInstance().breaker();
+            breaker.permit().thenAccept(probe -> {
+                if (callers.stream().allMatch(CompletableFuture::isDone)) {
+                    if (probe) breaker.abandonProbe();
+                    return;
                 }
+                JAIPilotHttpService.getInstance().client().sendAsync(request, handler).whenCompleteAsync((response, error) -> {
+                    try {
+                        if (error != null) {
+                            breaker.onFailure();
+                            LOG.info("Batched JAIPilot request failed, sending jobs one by one: " + error.getMessage());
+                            return;
+                        }
+                        breaker.record(response.statusCode());
+                        if (response.statusCode() == 404 || response.statusCode() == 405) {
+                            if (response.body() instanceof InputStream body) body.close();
+                            supported = false;
+                            LOG.info("JAIPilot backend has no batch endpoints, sending jobs one by one");
+                            return;
+                        }
+                        next.accept(response);
+                    } catch (Throwable t) {
+                        LOG.info("Batched JAIPilot request failed, sending jobs one by one: " + t.getMessage());
+                    } finally {
+                        callers.forEach(caller -> caller.complete(null));
+                    }
+                }, AppExecutorUtil.getAppExecutorService());
+            });
+        }
+    }
 
-                long sleepMillis = backoffMillis + (long) (Math.random() * 250); // jitter
-                ConsolePrinter.warn(myConsole,
-                        "Retrying request (" + retries + "/" + MAX_RETRIES + ") after " + sleepMillis + "ms: " + t.getMessage());
+    /**
+     * Polling fallback: learns how long jobs usually take and polls densely around that point
+     * instead of every 5 s, so a job that finished is usually noticed within a fraction of a second.
+     */
+    private static final class PollSchedule {
+        private static final long MIN_INTERVAL_MS = 250;
+        private static final long MAX_INTERVAL_MS = 5000;
 
-                Thread.sleep(sleepMillis);
-                backoffMillis = Math.min(backoffMillis * 2, 30_000); // cap at 30s
+        private static double expectedJobMs = 20_000; // until the first job has finished
+        private static boolean learned;
+
+        static synchronized void recordJob(long durationMs) {
+            expectedJobMs = learned ? 0.7 * expectedJobMs + 0.3 * durationMs : durationMs;
+            learned = true;
+        }
+
+        /** Halves the gap towards the expected finish; past it, backs off in proportion to the overrun. */
+        static synchronized long nextDelay(long elapsedMs) {
+            long remaining = (long) expectedJobMs - elapsedMs;
+            long delay = remaining > 0 ? remaining / 2 : elapsedMs / 10;
+            return Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, delay));
+        }
+    }
+
+    /**
+     * Single pass over a fetch-job response, straight from the HTTP stream into the result DTOs
+     * without an intermediate tree. {@code output} is the {@link PromptResponseOutput} either as an
+     * object or, as the backend sends it today, encoded as a JSON string; in that case only the
+     * string itself is parsed a second time. A non-object {@code output} of a failed job is its message.
+     * A running job may carry {@code partial}, the {@code apply_test_class} arguments streamed so far.
+     */
+    static JobStatus readJobStatus(InputStream body) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) throw new IOException("Unexpected job status payload");
+            return readJobStatus(parser);
+        }
+    }
+
+    /**
+     * Same pass over a multi-id fetch-jobs response, {@code {"jobs": {"<jobId>": <job status>, ...}}}.
+     * Jobs the backend does not report are absent from the map.
+     */
+    static Map<String, JobStatus> readJobStatuses(InputStream body) throws IOException {
+        Map<String, JobStatus> jobs = new LinkedHashMap<>();
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) throw new IOException("Unexpected job status payload");
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                if (parser.nextToken() == JsonToken.START_OBJECT && "jobs".equals(field)) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String jobId = parser.getCurrentName();
+                        if (parser.nextToken() == JsonToken.START_OBJECT) jobs.put(jobId, readJobStatus(parser));
+                        else parser.skipChildren();
+                    }
+                } else {
+                    parser.skipChildren();
+                }
             }
         }
+        return jobs;
+    }
+
+    /** Reads one job status object; the parser stands on its {@code START_OBJECT}. */
+    private static JobStatus readJobStatus(JsonParser parser) throws IOException {
+        String status = null;
+        PromptResponseOutput output = null;
+        String encoded = null;
+        Map<String, Object> partial = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("status".equals(field)) {
+                status = parser.getValueAsString();
+            } else if ("output".equals(field) && value == JsonToken.START_OBJECT) {
+                output = MAPPER.readValue(parser, PromptResponseOutput.class);
+            } else if ("output".equals(field) && value == JsonToken.VALUE_STRING) {
+                encoded = parser.getText();
+            } else if ("partial".equals(field) && value == JsonToken.START_OBJECT) {
+                partial = MAPPER.readValue(parser, new TypeReference<Map<String, Object>>() {});
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (status == null) throw new IOException("Job status missing");
+        if (output == null && encoded != null && "done".equalsIgnoreCase(status)) {
+            output = MAPPER.readValue(encoded, PromptResponseOutput.class);
+        }
+        return new JobStatus(status, output, encoded, partial);
+    }
+
+    record JobStatus(String status, PromptResponseOutput output, String message, Map<String, Object> partial) {}
+
+    private static String authorization() {
+        String key = AISettings.getInstance().getProKey();
+        return "Bearer " + key;
+    }
+
+    private interface ResponseStep<T> {
+        void accept(HttpResponse<T> response) throws Exception;
     }
 
 }
@@ -0,0 +1,136 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Signature-only stubs of library classes, built from IntelliJ's compiled class stubs
+ * ({@code ClsClassImpl}) rather than from decompiled text.
+ *
+ * Reading a JAR class as text makes IntelliJ decompile it, and the result still carries every
+ * private member and synthetic detail. The stub lists only what a test can use – public and
+ * protected fields, constructors, methods and nested types, with simple type names – so a
+ * Mockito- or Spring-heavy CUT gets its library context from the class file's stub tree alone.
+ * Stubs are cached with the skeletons, keyed by the class file inside its JAR, i.e. per library
+ * version.
+ */
+public final class LibraryStubs {
+    private LibraryStubs() {}
+
+    private static final String INDENT = "    ";
+
+    static boolean isClassFile(@NotNull VirtualFile file) {
+        return "class".equalsIgnoreCase(file.getExtension());
+    }
+
+    /** The stub of a compiled class file; empty when {@code file} is not one. */
+    static String stub(@NotNull Project project, @NotNull VirtualFile file) {
+        return ReadAction.compute(() -> {
+            PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+            if (!(psiFile instanceof PsiJavaFile javaFile) || !(psiFile instanceof PsiCompiledElement)) return "";
+            StringBuilder out = new StringBuilder();
+            if (!javaFile.getPackageName().isEmpty()) out.append("package ").append(javaFile.getPackageName()).append(";\n\n");
+            for (PsiClass clazz : javaFile.getClasses()) appendClass(clazz, "", out);
+            return out.toString();
+        });
+    }
+
+    private static void appendClass(PsiClass clazz, String indent, StringBuilder out) {
+        out.append(indent).append(modifiers(clazz, clazz.getContainingClass())).append(kind(clazz)).append(' ').append(clazz.getName());
+        appendTypeParameters(clazz.getTypeParameters(), out);
+        if (clazz.isRecord()) {
+            out.append(Arrays.stream(clazz.getRecordComponents())
+                    .map(c -> c.getType().getPresentableText() + " " + c.getName())
+                    .collect(Collectors.joining(", ", "(", ")")));
+        }
+        if (!clazz.isEnum() && !clazz.isRecord()) appendTypes(" extends ", clazz.getExtendsListTypes(), out);
+        if (!clazz.isInterface()) appendTypes(" implements ", clazz.getImplementsListTypes(), out);
+        out.append(" {\n");
+
+        String inner = indent + INDENT;
+        String constants = Arrays.stream(clazz.getFields())
+                .filter(f -> f instanceof PsiEnumConstant)
+                .map(PsiField::getName)
+                .collect(Collectors.joining(", "));
+        if (!constants.isEmpty()) out.append(inner).append(constants).append(";\n");
+
+        for (PsiField field : clazz.getFields()) {
+            if (field instanceof PsiEnumConstant || !visible(field)) continue;
+            out.append(inner).append(modifiers(field, clazz)).append(field.getType().getPresentableText())
+                    .append(' ').append(field.getName()).append(";\n");
+        }
+        for (PsiMethod method : clazz.getMethods()) {
+            if (!visible(method)) continue;
+            out.append(inner).append(modifiers(method, clazz));
+            if (method.getTypeParameters().length > 0) {
+                appendTypeParameters(method.getTypeParameters(), out);
+                out.append(' ');
+            }
+            if (!method.isConstructor() && method.getReturnType() != null) {
+                out.append(method.getReturnType().getPresentableText()).append(' ');
+            }
+            out.append(method.getName()).append(Arrays.stream(method.getParameterList().getParameters())
+                    .map(p -> p.getType().getPresentableText() + " " + p.getName())
+                    .collect(Collectors.joining(", ", "(", ")")));
+            appendTypes(" throws ", method.getThrowsList().getReferencedTypes(), out);
+            out.append(";\n");
+        }
+        for (PsiClass nested : clazz.getInnerClasses()) {
+            if (visible(nested)) appendClass(nested, inner, out);
+        }
+        out.append(indent).append("}\n");
+    }
+
+    /** Public and protected members; interface members are implicitly public. */
+    private static boolean visible(PsiModifierListOwner member) {
+        if (member.hasModifierProperty(PsiModifier.PUBLIC) || member.hasModifierProperty(PsiModifier.PROTECTED)) return true;
+        return member instanceof PsiMember m && m.getContainingClass() != null && m.getContainingClass().isInterface();
+    }
+
+    private static String modifiers(PsiModifierListOwner owner, PsiClass container) {
+        boolean inInterface = container != null && container.isInterface();
+        StringBuilder out = new StringBuilder();
+        for (String modifier : new String[]{PsiModifier.PUBLIC, PsiModifier.PROTECTED, PsiModifier.STATIC,
+                PsiModifier.ABSTRACT, PsiModifier.FINAL, PsiModifier.DEFAULT}) {
+            if (!owner.hasModifierProperty(modifier)) continue;
+            // Implied inside interfaces, and abstract is implied for interfaces themselves
+            if (inInterface && !PsiModifier.STATIC.equals(modifier) && !PsiModifier.DEFAULT.equals(modifier)) continue;
+            if (owner instanceof PsiClass c && c.isInterface() && PsiModifier.ABSTRACT.equals(modifier)) continue;
+            if (owner instanceof PsiClass c && c.isEnum() && PsiModifier.FINAL.equals(modifier)) continue;
+            out.append(modifier).append(' ');
+        }
+        return out.toString();
+    }
+
+    private static String kind(PsiClass clazz) {
+        if (clazz.isAnnotationType()) return "@interface";
+        if (clazz.isInterface()) return "interface";
+        if (clazz.isEnum()) return "enum";
+        if (clazz.isRecord()) return "record";
+        return "class";
+    }
+
+    private static void appendTypeParameters(PsiTypeParameter[] parameters, StringBuilder out) {
+        if (parameters.length == 0) return;
+        out.append(Arrays.stream(parameters).map(p -> {
+            PsiClassType[] bounds = p.getExtendsListTypes();
+            return bounds.length == 0 ? p.getName() : p.getName() + " extends " + Arrays.stream(bounds)
+                    .map(PsiType::getPresentableText).collect(Collectors.joining(" & "));
+        }).collect(Collectors.joining(", ", "<", ">")));
+    }
+
+    private static void appendTypes(String keyword, PsiClassType[] types, StringBuilder out) {
+        if (types.length == 0) return;
+        out.append(keyword).append(Arrays.stream(types).map(PsiType::getPresentableText).collect(Collectors.joining(", ")));
+    }
+}
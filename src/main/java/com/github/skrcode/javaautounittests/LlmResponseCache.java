@@ -0,0 +1,116 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.skrcode.javaautounittests.DTOs.Content;
+import com.github.skrcode.javaautounittests.DTOs.PromptResponseOutput;
+import com.github.skrcode.javaautounittests.settings.AISettings;
+import com.github.skrcode.javaautounittests.settings.DiskLruStore;
+import com.github.skrcode.javaautounittests.settings.JAIPilotHttpService;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.io.DigestUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content-addressed, on-disk cache of model answers in front of {@link JAIPilotLLM}.
+ *
+ * The key is the {@link RequestHash} of the request, so rerunning an unchanged class or a CI shard
+ * after an infrastructure failure replays the recorded answers instead of paying for them again.
+ * Only successful answers are recorded. Files live under the IDE system directory – answers of the
+ * production backend in {@code llm-cache}, those of any other backend in a directory of its own –
+ * and are evicted least recently used first once a directory outgrows
+ * {@link AISettings#getLlmCacheMaxMb()}. {@link FakeBackendServer} can replay {@code llm-cache}.
+ *
+ * While the backend is redirected (a fake backend, a system property or the Backend URL setting)
+ * the cache is off unless a mode is forced for the process, e.g. with {@code --llm-cache}: a fake's
+ * answers must never be replayed to a real run, and a fake benchmark must reach the server.
+ */
+@Service(Service.Level.APP)
+public final class LlmResponseCache {
+
+    public enum Mode {
+        OFF,
+        /** Replay recorded answers, ask the backend and record on a miss. */
+        READ_WRITE,
+        /** Replay recorded answers and fail on a miss – deterministic runs for benchmarking. */
+        REPLAY_ONLY
+    }
+
+    private static final Logger LOG = Logger.getInstance(LlmResponseCache.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static volatile Mode override;
+
+    private final Path dir = Paths.get(PathManager.getSystemPath(), "jaipilot", "llm-cache");
+    private final Map<String, DiskLruStore> stores = new ConcurrentHashMap<>();
+
+    public static LlmResponseCache getInstance() {
+        return ApplicationManager.getApplication().getService(LlmResponseCache.class);
+    }
+
+    /** Mode for this process only, e.g. from a headless run's arguments; null restores the setting. */
+    public static void overrideMode(@Nullable Mode mode) {
+        override = mode;
+    }
+
+    public static Mode mode() {
+        Mode forced = override;
+        if (forced != null) return forced;
+        if (JAIPilotHttpService.isRedirected()) return Mode.OFF;
+        try {
+            return Mode.valueOf(AISettings.getInstance().getLlmCacheMode());
+        } catch (IllegalArgumentException e) {
+            return Mode.READ_WRITE;
+        }
+    }
+
+    static String key(@NotNull List<Content> contents, int attempt) throws IOException {
+        return RequestHash.of(contents, attempt);
+    }
+
+    public @Nullable PromptResponseOutput get(@NotNull String key) {
+        DiskLruStore disk = store();
+        Path file = disk.get(key);
+        if (file == null) return null;
+        try {
+            return MAPPER.readValue(file.toFile(), PromptResponseOutput.class);
+        } catch (IOException e) {
+            LOG.warn("Dropping unreadable JAIPilot cache entry " + file, e);
+            disk.delete(key);
+            return null;
+        }
+    }
+
+    public void put(@NotNull String key, @NotNull PromptResponseOutput output) {
+        try {
+            store().put(key, file -> MAPPER.writeValue(file.toFile(), output));
+        } catch (IOException e) {
+            LOG.warn("Cannot record JAIPilot response " + key, e);
+        }
+    }
+
+    /** The directory of the backend requests currently go to. */
+    private DiskLruStore store() {
+        String backend = JAIPilotHttpService.baseUrl();
+        return stores.computeIfAbsent(backend, url -> new DiskLruStore(
+                JAIPilotHttpService.isRedirected()
+                        ? dir.resolve("backends").resolve(DigestUtil.sha256Hex(url.getBytes(StandardCharsets.UTF_8)).substring(0, 16))
+                        : dir,
+                ".json", () -> AISettings.getInstance().getLlmCacheMaxMb() * 1024L * 1024L));
+    }
+}
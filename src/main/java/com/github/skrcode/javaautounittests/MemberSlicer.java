@@ -0,0 +1,181 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Member-level slices of dependency skeletons: only what the CUT actually uses.
+ *
+ * A collaborator's full skeleton lists every member even when the CUT calls two of its 80
+ * methods. The slice keeps the class headers (so {@code extends} / {@code implements} stay visible
+ * for mocking), all constructors and enum constants, and the fields, methods and nested types the
+ * CUT references; everything else is replaced by a one-line count. Comments go and bodies become
+ * {@code {}} as in the full skeleton. A file the CUT uses no field, method or constructor of –
+ * typically a data type it only names or passes around – keeps its full skeleton. The omitted-members
+ * note tells the model to ask for the file again, which then sends it whole.
+ */
+public final class MemberSlicer {
+    private MemberSlicer() {}
+
+    /** What one CUT references, grouped by the file declaring it. */
+    public static final class Usage {
+        private final String cutName;
+        private final Map<VirtualFile, Set<PsiMember>> members;
+
+        private Usage(String cutName, Map<VirtualFile, Set<PsiMember>> members) {
+            this.cutName = cutName;
+            this.members = members;
+        }
+
+        /** Top-level classes declaring members the CUT uses, e.g. supertypes of its collaborators. Read action. */
+        List<PsiClass> declaringClasses() {
+            List<PsiClass> out = new ArrayList<>();
+            for (Set<PsiMember> used : members.values()) {
+                for (PsiMember member : used) {
+                    if (!member.isValid() || !(member.getContainingFile() instanceof PsiJavaFile file)) continue;
+                    for (PsiClass clazz : file.getClasses()) {
+                        if (PsiTreeUtil.isAncestor(clazz, member, false) && !out.contains(clazz)) out.add(clazz);
+                    }
+                }
+            }
+            return out;
+        }
+
+        /** Whether {@code file} is sent as a slice: a source file the CUT uses a field, method or constructor of. */
+        boolean slices(@NotNull VirtualFile file) {
+            Set<PsiMember> used = members.get(file);
+            if (used == null || LibraryStubs.isClassFile(file)) return false;
+            // Only naming a type is no reason to hide the rest of it
+            return used.stream().anyMatch(member -> !(member instanceof PsiClass));
+        }
+
+        /**
+         * Identifies the slice of {@code file} for caching, or {@code null} when the file should be sent
+         * whole (see {@link #slices}, or the file changed since the CUT was analyzed).
+         */
+        @Nullable String variant(@NotNull VirtualFile file) {
+            if (!slices(file)) return null;
+            Set<PsiMember> used = members.get(file);
+            return ReadAction.compute(() -> {
+                List<Integer> offsets = new ArrayList<>();
+                for (PsiMember member : used) {
+                    if (!member.isValid()) return null;
+                    offsets.add(member.getTextOffset());
+                }
+                Collections.sort(offsets);
+                return "slice:" + cutName + ":" + offsets;
+            });
+        }
+
+        /** The sliced skeleton of {@code file}; empty when it cannot be read or is compiled (no source ranges to cut). */
+        String slice(@NotNull Project project, @NotNull VirtualFile file) {
+            return ReadAction.compute(() -> {
+                PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+                if (!(psiFile instanceof PsiJavaFile javaFile) || psiFile instanceof PsiCompiledElement) return "";
+                return MemberSlicer.slice(javaFile, members.getOrDefault(file, Set.of()), cutName);
+            });
+        }
+    }
+
+    /** Everything {@code cut} references in other files: calls, field accesses, constructors and types. */
+    public static Usage usage(@NotNull PsiClass cut) {
+        return ReadAction.compute(() -> {
+            Map<VirtualFile, Set<PsiMember>> members = new HashMap<>();
+            if (!cut.isValid()) return new Usage("", members);
+            PsiFile cutFile = cut.getContainingFile();
+            cut.accept(new PsiRecursiveElementWalkingVisitor() {
+                @Override
+                public void visitElement(@NotNull PsiElement element) {
+                    PsiElement target = null;
+                    if (element instanceof PsiJavaCodeReferenceElement reference) target = reference.resolve();
+                    else if (element instanceof PsiNewExpression creation) target = creation.resolveConstructor();
+                    if (target instanceof PsiMember member && !(target instanceof PsiTypeParameter)) {
+                        PsiFile file = member.getContainingFile();
+                        VirtualFile vf = file == null ? null : file.getVirtualFile();
+                        if (vf != null && file != cutFile) members.computeIfAbsent(vf, f -> new HashSet<>()).add(member);
+                    }
+                    super.visitElement(element);
+                }
+            });
+            return new Usage(Objects.toString(cut.getName(), ""), members);
+        });
+    }
+
+    /** Read action. */
+    static String slice(PsiJavaFile file, Set<PsiMember> used, String cutName) {
+        Set<PsiElement> keep = new HashSet<>();
+        for (PsiMember member : used) {
+            // A used member keeps the classes around it, but not their other members
+            for (PsiElement e = member; e != null && !(e instanceof PsiFile); e = e.getParent()) keep.add(e);
+        }
+
+        List<Edit> edits = new ArrayList<>();
+        for (PsiComment comment : PsiTreeUtil.findChildrenOfType(file, PsiComment.class)) {
+            edits.add(new Edit(comment.getTextRange(), ""));
+        }
+        for (PsiClass clazz : file.getClasses()) sliceClass(clazz, keep, edits, cutName);
+        return apply(file.getText(), edits).replaceAll("\\n[ \\t]*\\n(?:[ \\t]*\\n)+", "\n\n");
+    }
+
+    private static void sliceClass(PsiClass clazz, Set<PsiElement> keep, List<Edit> edits, String cutName) {
+        int omitted = 0;
+        for (PsiElement child : clazz.getChildren()) {
+            if (child instanceof PsiClassInitializer) {
+                edits.add(new Edit(child.getTextRange(), ""));
+            } else if (child instanceof PsiEnumConstant) {
+                // always kept, tests need to name them
+            } else if (child instanceof PsiMethod method) {
+                if (!method.isConstructor() && !keep.contains(method)) {
+                    edits.add(new Edit(method.getTextRange(), ""));
+                    omitted++;
+                } else if (method.getBody() != null) {
+                    edits.add(new Edit(method.getBody().getTextRange(), "{}"));
+                }
+            } else if (child instanceof PsiField || child instanceof PsiClass) {
+                if (!keep.contains(child)) {
+                    edits.add(new Edit(child.getTextRange(), ""));
+                    omitted++;
+                } else if (child instanceof PsiClass inner) {
+                    sliceClass(inner, keep, edits, cutName);
+                }
+            }
+        }
+        PsiElement rBrace = clazz.getRBrace();
+        if (omitted > 0 && rBrace != null) {
+            int at = rBrace.getTextRange().getStartOffset();
+            edits.add(new Edit(new TextRange(at, at), "// " + omitted + " more members, not used by " + cutName
+                    + " (get_file again for the full class)\n"));
+        }
+    }
+
+    private record Edit(TextRange range, String replacement) {}
+
+    /** Applies the edits front to back; an edit inside one already applied (e.g. a comment in a removed method) is skipped. */
+    private static String apply(String text, List<Edit> edits) {
+        List<Edit> sorted = edits.stream()
+                .sorted(Comparator.comparingInt((Edit e) -> e.range().getStartOffset())
+                        .thenComparing(Comparator.comparingInt((Edit e) -> e.range().getLength()).reversed()))
+                .collect(Collectors.toList());
+        StringBuilder out = new StringBuilder(text.length());
+        int pos = 0;
+        for (Edit edit : sorted) {
+            if (edit.range().getStartOffset() < pos) continue;
+            out.append(text, pos, edit.range().getStartOffset()).append(edit.replacement());
+            pos = edit.range().getEndOffset();
+        }
+        return out.append(text, pos, text.length()).toString();
+    }
+}
@@ -0,0 +1,56 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.skrcode.javaautounittests.DTOs.Content;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The identity of one model request: SHA-256 over {@code attemptNumber} and the full
+ * {@code contents}, serialized from the {@link Content} DTOs. {@link LlmResponseCache} records
+ * answers under it and {@link FakeBackendServer} finds them again, so both must hash the same
+ * bytes. Which backend answered is not part of it.
+ */
+final class RequestHash {
+    private RequestHash() {}
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<Content>> CONTENTS = new TypeReference<>() {};
+
+    /** Streamed straight into the digest, the request is never held as a whole. */
+    static String of(@NotNull List<Content> contents, int attempt) throws IOException {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("attemptNumber", attempt);
+        request.put("contents", contents);
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            MAPPER.writeValue(out, request);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /** Same for contents as received over the wire, read back into the DTOs first. */
+    static String of(@NotNull JsonNode contents, int attempt) throws IOException {
+        return of(MAPPER.convertValue(contents, CONTENTS), attempt);
+    }
+}
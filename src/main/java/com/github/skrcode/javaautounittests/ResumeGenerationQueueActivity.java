@@ -0,0 +1,77 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.settings.AIProjectSettings;
+import com.github.skrcode.javaautounittests.settings.GenerationQueueState;
+import com.intellij.notification.NotificationAction;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.search.GlobalSearchScope;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On project open, offers to resume a batch that a previous IDE session left unfinished.
+ */
+public class ResumeGenerationQueueActivity implements StartupActivity.DumbAware {
+
+    static final String NOTIFICATION_GROUP = "JAIPilot Generation";
+
+    @Override
+    public void runActivity(@NotNull Project project) {
+        // A headless run is driven by its own arguments, see HeadlessGenerationStarter
+        if (ApplicationManager.getApplication().isHeadlessEnvironment()) return;
+
+        GenerationQueueState queue = GenerationQueueState.getInstance(project);
+        List<String> unfinished = queue.unfinished();
+        if (unfinished.isEmpty()) return;
+
+        NotificationGroupManager.getInstance()
+                .getNotificationGroup(NOTIFICATION_GROUP)
+                .createNotification(
+                        "JAIPilot batch interrupted",
+                        unfinished.size() + " class(es) were still queued when the IDE closed.",
+                        NotificationType.INFORMATION
+                )
+                .addAction(NotificationAction.createSimpleExpiring("Resume", () -> resume(project)))
+                .addAction(NotificationAction.createSimpleExpiring("Discard", queue::discardUnfinished))
+                .notify(project);
+    }
+
+    static void resume(Project project) {
+        DumbService.getInstance(project).runWhenSmart(() -> {
+            GenerationQueueState queue = GenerationQueueState.getInstance(project);
+            // Each batch goes back to the test root it was started for
+            for (Map.Entry<String, List<String>> batch : queue.unfinishedByTestRoot().entrySet()) {
+                List<PsiClass> classes = new ArrayList<>();
+                for (String fqn : batch.getValue()) {
+                    PsiClass psiClass = ReadAction.compute(() ->
+                            JavaPsiFacade.getInstance(project).findClass(fqn, GlobalSearchScope.projectScope(project)));
+                    if (psiClass == null) {
+                        queue.remove(fqn); // class was deleted or renamed meanwhile
+                    } else {
+                        classes.add(psiClass);
+                    }
+                }
+                if (classes.isEmpty()) continue;
+                String testRoot = batch.getKey().isEmpty()
+                        ? AIProjectSettings.getInstance(project).getTestDirectory()
+                        : batch.getKey();
+                BulkGeneratorService.enqueue(project, classes, GenerateTestAction.stringPathToPsiDirectory(project, testRoot));
+            }
+        });
+    }
+}
@@ -0,0 +1,88 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.settings.DiskLruStore;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.io.DigestUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Stripped dependency skeletons (what {@code get_file} sends the model), kept in memory and on disk.
+ *
+ * Keyed by the file's URL, timestamp and length, so a skeleton is computed once per version of a
+ * file and then shared by all classes, runs and IDE restarts – library sources in particular never
+ * change. Files with unsaved edits bypass the cache. Files live under the IDE system directory and
+ * are evicted least recently used first beyond {@link #MAX_DISK_BYTES}.
+ */
+@Service(Service.Level.APP)
+public final class SkeletonCache {
+
+    private static final Logger LOG = Logger.getInstance(SkeletonCache.class);
+
+    /** Bump when the stripping changes, so skeletons of the old format are not reused. */
+    private static final String FORMAT = "2";
+    private static final int MAX_IN_MEMORY = 512;
+    private static final long MAX_DISK_BYTES = 64L * 1024 * 1024;
+
+    private final DiskLruStore disk = new DiskLruStore(
+            Paths.get(PathManager.getSystemPath(), "jaipilot", "skeletons"), ".txt", () -> MAX_DISK_BYTES);
+    private final Map<String, String> memory = new LinkedHashMap<>(MAX_IN_MEMORY, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_IN_MEMORY;
+        }
+    };
+
+    public static SkeletonCache getInstance() {
+        return ApplicationManager.getApplication().getService(SkeletonCache.class);
+    }
+
+    /** The skeleton of {@code file}, from the cache or computed by {@code strip} and recorded. */
+    public String skeleton(@NotNull VirtualFile file, @NotNull Supplier<String> strip) {
+        return skeleton(file, "", strip);
+    }
+
+    /** Same for one {@code variant} of the skeleton, e.g. a {@link MemberSlicer} slice. */
+    public String skeleton(@NotNull VirtualFile file, @NotNull String variant, @NotNull Supplier<String> strip) {
+        boolean unsaved = ReadAction.compute(() -> FileDocumentManager.getInstance().isFileModified(file));
+        if (unsaved) return strip.get();
+
+        String key = DigestUtil.sha256Hex((FORMAT + '\n' + file.getUrl() + '\n' + file.getTimeStamp() + '\n' + file.getLength()
+                + '\n' + variant).getBytes(StandardCharsets.UTF_8));
+        synchronized (memory) {
+            String cached = memory.get(key);
+            if (cached != null) return cached;
+        }
+
+        String skeleton = disk.getString(key);
+        if (skeleton == null) {
+            skeleton = strip.get();
+            if (skeleton.isBlank()) return skeleton; // unresolved, may resolve once indexing is done
+            try {
+                disk.putString(key, skeleton);
+            } catch (IOException e) {
+                LOG.warn("Cannot store JAIPilot skeleton " + key, e);
+            }
+        }
+        synchronized (memory) {
+            memory.put(key, skeleton);
+        }
+        return skeleton;
+    }
+}
@@ -5,11 +5,14 @@
 package com.github.skrcode.javaautounittests;
 
 import com.github.skrcode.javaautounittests.DTOs.Content;
+import com.github.skrcode.javaautounittests.DTOs.GenerationResult;
 import com.github.skrcode.javaautounittests.DTOs.PromptResponseOutput;
 import com.github.skrcode.javaautounittests.DTOs.QuotaResponse;
 import com.github.skrcode.javaautounittests.settings.AISettings;
 import com.github.skrcode.javaautounittests.settings.ConsolePrinter;
-import com.github.skrcode.javaautounittests.settings.JAIPilotExecutionManager;
+import com.github.skrcode.javaautounittests.settings.GenerationQueueState;
+import com.github.skrcode.javaautounittests.settings.GenerationRun;
+import com.github.skrcode.javaautounittests.settings.JAIPilotHttpService;
 import com.github.skrcode.javaautounittests.settings.QuotaUtil;
 import com.github.skrcode.javaautounittests.settings.telemetry.Telemetry;
 import com.intellij.execution.ui.ConsoleView;
@@ -20,278 +23,518 @@ import com.intellij.notification.NotificationType;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.command.WriteCommandAction;
-import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectRootManager;
-import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.io.DigestUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.event.HyperlinkEvent;
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static com.github.skrcode.javaautounittests.settings.telemetry.TelemetryService.getAppVersion;
 
 public final class TestGenerationWorker {
 
+    private static final Logger LOG = Logger.getInstance(TestGenerationWorker.class);
     private static final int MAX_ATTEMPTS = 100;
 
-    public static void process(Project project, PsiClass cut, @NotNull ConsoleView myConsole, PsiDirectory testRoot, @NotNull ProgressIndicator indicator) {
-        int attempt = 1;
-        try {
-            try {
-                QuotaResponse quotaResponse = QuotaUtil.fetchQuota();
-                if(quotaResponse.message != null)
-                    ConsolePrinter.warn(myConsole, quotaResponse.message);
-            }
-            catch (Exception e) {}
-            long start = System.nanoTime();
+    /**
+     * Generates, compiles and runs the test class for one CUT until it is green or attempts run out.
+     * Never shows UI itself – the caller decides how to report the returned result.
+     *
+     * The attempt loop is an async state machine: while the class waits for the LLM, the compiler
+     * or the test JVM it holds no thread, so a batch can keep dozens of classes in flight. Short
+     * PSI steps in between run on the application pool. The returned future never fails.
+     */
+    public static CompletableFuture<GenerationResult> processAsync(Project project, PsiClass cut, @NotNull ConsoleView myConsole,
+                                                                   PsiDirectory testRoot, @NotNull GenerationPipeline pipeline,
+                                                                   @NotNull GenerationRun run) {
+        Session session = new Session(project, cut, myConsole, testRoot, pipeline, run);
+        return CompletableFuture
+                .supplyAsync(() -> session.step(session::prepare), AppExecutorUtil.getAppExecutorService())
+                .thenCompose(early -> early != null ? CompletableFuture.completedFuture(early) : session.nextAttempt())
+                .handle((result, t) -> t == null ? result : session.failed(t));
+    }
 
-            PsiDirectory packageDir = resolveTestPackageDir(project, testRoot, cut);
+    /** Conversation state of one class, advanced one attempt at a time. */
+    private static final class Session {
+        private final Project project;
+        private final PsiClass cut;
+        private final ConsoleView myConsole;
+        private final PsiDirectory testRoot;
+        private final GenerationPipeline pipeline;
+        private final GenerationRun run;
+        private final long start = System.nanoTime();
+        private final String cutName;
+
+        private int attempt = 1;
+        private GenerationResult.Status status = GenerationResult.Status.SUCCEEDED;
+        private PsiDirectory packageDir;
+        private String testFileName;
+        private String cutFqn;
+        private String cutHash;
+        private GenerationQueueState queue;
+        private boolean isLLMGeneratedAtLeastOnce = false;
+        private final Set<String> isClassPathFetched = new HashSet<>();
+        /** Files sent as a {@link MemberSlicer} slice; asking for one again gets it whole. */
+        private final Set<VirtualFile> slicedFiles = new HashSet<>();
+        private String newTestSource = null;
+        private final List<Content> contents = new ArrayList<>();
+        private List<Content> actualContents;
+        private boolean shouldRebuild = true;
+        private Ref<PsiFile> testFile;
+        private final JAIPilotLLM.Conversation conversation = new JAIPilotLLM.Conversation();
+        private final ContextBudgetManager budget = new ContextBudgetManager(AISettings.getInstance().getContextBudgetTokens());
+        private @Nullable MemberSlicer.Usage usage;
+
+        // --- methods streamed in while the current LLM request is still running ---
+        private final Map<String, String> streamed = new HashMap<>();
+        private boolean skeletonStreamed;
+        private int streamedLines;
+        private volatile boolean earlyErrorsShown;
+        private volatile CompletableFuture<?> earlyCompile = CompletableFuture.completedFuture(null);
+
+        Session(Project project, PsiClass cut, ConsoleView myConsole, PsiDirectory testRoot,
+                GenerationPipeline pipeline, GenerationRun run) {
+            this.project = project;
+            this.cut = cut;
+            this.myConsole = myConsole;
+            this.testRoot = testRoot;
+            this.pipeline = pipeline;
+            this.run = run;
+            this.cutName = ReadAction.compute(() -> cut.isValid() ? cut.getName() : "<invalid>");
+        }
+
+        /** Returns a result when the class is finished before the first attempt, {@code null} otherwise. */
+        private @Nullable GenerationResult prepare() throws Exception {
+            // Quota is informational only – never hold the class up for it
+            CompletableFuture.runAsync(() -> {
+                try {
+                    QuotaResponse quotaResponse = QuotaUtil.fetchQuota();
+                    if(quotaResponse.message != null)
+                        ConsolePrinter.warn(myConsole, quotaResponse.message);
+                }
+                catch (Exception e) {}
+            }, AppExecutorUtil.getAppExecutorService());
+
+            packageDir = resolveTestPackageDir(project, testRoot, cut);
             if (packageDir == null) {
                 Telemetry.genFailed(null,String.valueOf(attempt),"Cannot determine package for CUT");
                 ConsolePrinter.error(myConsole, "Cannot determine package for CUT");
-                return;
+                return result(GenerationResult.Status.FAILED, "Cannot determine package for CUT");
             }
 
-            String cutName = ReadAction.compute(() -> cut.isValid() ? cut.getName() : "<invalid>");
-            String testFileName = cutName + "Test.java";
+            testFileName = cutName + "Test.java";
             Telemetry.allGenBegin(testFileName);
 
-            boolean isLLMGeneratedAtLeastOnce = false;
-
-            JAIPilotExecutionManager.reset();
-            List<Content> contents = new ArrayList<>();
             String cutSource = CUTUtil.cleanedSourceForLLM(project, cut);
-            contents.add(JAIPilotLLM.getInputClassContent(cutSource));
-
-            // Add existing test class (if present) as context
-            Ref<PsiFile> testFileExisting = ReadAction.compute(() -> Ref.create(packageDir.findFile(testFileName)));
-            String existingTestSource = "";
-            if (ReadAction.compute(testFileExisting::get) != null) {
-                existingTestSource = ReadAction.compute(() -> testFileExisting.get().getText());
-                if (existingTestSource != null && !existingTestSource.isBlank()) {
-                    contents.add(JAIPilotLLM.getExistingTestClassContent(existingTestSource));
+            cutFqn = ReadAction.compute(() -> cut.isValid() ? cut.getQualifiedName() : null);
+            cutHash = DigestUtil.sha256Hex(cutSource.getBytes(StandardCharsets.UTF_8));
+            usage = AISettings.getInstance().isSliceDependencies() ? MemberSlicer.usage(cut) : null;
+            queue = GenerationQueueState.getInstance(project);
+
+            // Resume an interrupted conversation instead of paying again for its attempts
+            GenerationQueueState.Checkpoint checkpoint = cutFqn == null ? null : queue.checkpointFor(cutFqn, cutHash);
+            if (checkpoint != null) {
+                contents.addAll(checkpoint.contents());
+                attempt = checkpoint.attempt();
+                newTestSource = checkpoint.lastTestSource().isEmpty() ? null : checkpoint.lastTestSource();
+                isLLMGeneratedAtLeastOnce = checkpoint.llmGenerated();
+                isClassPathFetched.addAll(checkpoint.fetchedPaths());
+                ConsolePrinter.info(myConsole, "Resuming from checkpoint at attempt " + attempt);
+            } else {
+                contents.add(budget.tag(JAIPilotLLM.getInputClassContent(cutSource), ContextBudgetManager.Kind.CUT));
+
+                // Add existing test class (if present) as context
+                Ref<PsiFile> testFileExisting = ReadAction.compute(() -> Ref.create(packageDir.findFile(testFileName)));
+                String existingTestSource = "";
+                if (ReadAction.compute(testFileExisting::get) != null) {
+                    existingTestSource = ReadAction.compute(() -> testFileExisting.get().getText());
+                    if (existingTestSource != null && !existingTestSource.isBlank()) {
+                        contents.add(budget.tag(JAIPilotLLM.getExistingTestClassContent(existingTestSource),
+                                ContextBudgetManager.Kind.EXISTING_TEST, "existing " + testFileName));
+                    }
+                }
+
+                // Collaborators up front, so the model rarely needs a get_file round trip for them
+                List<DependencyPrefetcher.Dependency> dependencies = DependencyPrefetcher.prefetch(project, cut, usage);
+                for (DependencyPrefetcher.Dependency dependency : dependencies) {
+                    contents.add(budget.tag(JAIPilotLLM.getContextSourceContent(dependency.skeleton()),
+                            ContextBudgetManager.Kind.DEPENDENCY, dependency.path()));
+                    isClassPathFetched.add(dependency.path());
+                    isClassPathFetched.add(dependency.qualifiedName());
+                    if (dependency.sliced()) slicedFiles.add(dependency.file());
+                }
+                if (!dependencies.isEmpty()) {
+                    ConsolePrinter.info(myConsole, "Prefetched " + dependencies.size() + " dependencies: "
+                            + dependencies.stream().map(DependencyPrefetcher.Dependency::path).toList());
                 }
             }
-            List<Content> actualContents = new ArrayList<>(contents);
-            boolean shouldRebuild = true;
-            Set<String> isClassPathFetched = new HashSet<>();
-            String newTestSource = null;
-            for (; ; attempt++) {
-                ConsolePrinter.section(myConsole, "Attempting");
-                if(newTestSource != null) actualContents.add(JAIPilotLLM.getCombinedTestClassContent(newTestSource));
-                // Check if test file already exists and run it
-                Ref<PsiFile> testFile = ReadAction.compute(() -> Ref.create(packageDir.findFile(testFileName)));
-                if (ReadAction.compute(testFile::get) != null && shouldRebuild) {
-                    ConsolePrinter.info(myConsole, "Compiling Tests " + testFileName);
-                    indicator.checkCanceled();
-                    String errorOutput = BuilderUtil.compileJUnitClass(project, testFile);
-
-                    if (errorOutput.isEmpty()) {
-                        ConsolePrinter.success(myConsole, "Compilation Successful " + testFileName);
-                        ConsolePrinter.info(myConsole, "Running Tests " + testFileName);
-                        indicator.checkCanceled();
-                        errorOutput = BuilderUtil.runJUnitClass(project, testFile.get());
-                        if(!errorOutput.isEmpty()) {
-                            ConsolePrinter.info(myConsole, "Found tests execution errors " + testFileName);
-                            actualContents.add(JAIPilotLLM.getOutputContent(errorOutput));
-                        }
-                        else {
-                            ConsolePrinter.success(myConsole, "Tests execution successful " + testFileName);
-                            if(isLLMGeneratedAtLeastOnce) break;
-                        }
-                    }
-                    else {
-                        ConsolePrinter.info(myConsole, "Found compilation errors " + testFileName);
-                        actualContents.add(JAIPilotLLM.getOutputContent(errorOutput));
-                    }
+            actualContents = new ArrayList<>(contents);
+            return null;
+        }
+
+        /** One attempt: verify the current test class locally, then ask the model for the next revision. */
+        private CompletableFuture<GenerationResult> nextAttempt() {
+            ConsolePrinter.section(myConsole, "Attempting");
+            if(newTestSource != null) actualContents.add(budget.tag(JAIPilotLLM.getCombinedTestClassContent(newTestSource), ContextBudgetManager.Kind.TEST_SOURCE));
+            // Check if test file already exists and run it
+            testFile = ReadAction.compute(() -> Ref.create(packageDir.findFile(testFileName)));
+            Ref<PsiFile> current = testFile;
+            boolean verify = ReadAction.compute(current::get) != null && shouldRebuild;
+            // An early compile of the previous request's streamed methods may still hold the local stage
+            CompletableFuture<String> verification = earlyCompile.handle((r, t) -> null).thenCompose(ignored -> verify
+                    ? pipeline.local(run, () -> compileAndRunAsync(project, current, testFileName, myConsole, run))
+                    : CompletableFuture.completedFuture(null));
+
+            return verification
+                    .thenComposeAsync(this::afterVerification, AppExecutorUtil.getAppExecutorService())
+                    .thenCompose(done -> done != null ? CompletableFuture.completedFuture(done) : nextAttempt());
+        }
+
+        private CompletableFuture<GenerationResult> afterVerification(@Nullable String errorOutput) {
+            if (errorOutput != null) {
+                if (errorOutput.isEmpty()) {
+                    if(isLLMGeneratedAtLeastOnce) return CompletableFuture.completedFuture(summary());
                 }
-                shouldRebuild = false;
-                if (attempt > MAX_ATTEMPTS) {
-                    ConsolePrinter.warn(myConsole, "Attempts breached. I have tried my best to compile and execute tests. Please fix the remaining tests manually. " + testFileName);
-                    break;
+                else {
+                    actualContents.add(budget.tag(JAIPilotLLM.getOutputContent(errorOutput), ContextBudgetManager.Kind.ERRORS, "compile and test output"));
                 }
+            }
+            shouldRebuild = false;
+            if (attempt > MAX_ATTEMPTS) {
+                ConsolePrinter.warn(myConsole, "Attempts breached. I have tried my best to compile and execute tests. Please fix the remaining tests manually. " + testFileName);
+                status = GenerationResult.Status.INCOMPLETE;
+                return CompletableFuture.completedFuture(summary());
+            }
 
-                ConsolePrinter.info(myConsole, "Generating tests " + testFileName +" Please wait....");
-                indicator.checkCanceled();
-                PromptResponseOutput output = JAIPilotLLM.generateContent(
-                        testFileName,
-                        actualContents,
-                        myConsole,
-                        attempt,
-                        indicator
-                );
-                actualContents = new ArrayList<>(contents);
-                actualContents.add(output.getContent());
-                if (output.getContent() != null) {
-                    for (int i=0;i<10 && i < output.getContent().getParts().size();i++) {
-                        Content.Part p = output.getContent().getParts().get(i);
-                        if (p.getFunctionCall() != null) {
-                            Content.FunctionCall fc = p.getFunctionCall();
-                            String fn = fc.getName();
-                            Object args = fc.getArgs();
-                            switch (fn) {
-                                case "plan_test_changes": {
-                                    if (args instanceof Map) {
-                                        Map<?, ?> argMap = (Map<?, ?>) args;
-                                        String testPlan = (String) argMap.get("testPlan");
-                                        ConsolePrinter.info(myConsole, "Fetching test plan: \n" + testPlan);
-                                        actualContents.add(JAIPilotLLM.getTestPlanContent(testPlan));
-                                        contents.add(JAIPilotLLM.getTestPlanContent(testPlan));
-                                    }
-                                    break;
+            ConsolePrinter.info(myConsole, "Generating tests " + testFileName +" Please wait....");
+            run.checkCanceled();
+            ContextBudgetManager.Fit fit = budget.fit(actualContents);
+            if (fit.reduced()) {
+                ConsolePrinter.info(myConsole, "Context trimmed from ~" + fit.tokensBefore() + " to ~" + fit.tokensAfter()
+                        + " tokens (" + fit.shortened() + " shortened, " + fit.dropped() + " dropped)");
+            }
+            List<Content> request = fit.request();
+            int requestAttempt = attempt;
+            streamed.clear();
+            skeletonStreamed = false;
+            streamedLines = 0;
+            earlyErrorsShown = false;
+            return pipeline.remote(run, signals -> JAIPilotLLM.generateContentAsync(
+                            testFileName,
+                            request,
+                            myConsole,
+                            requestAttempt,
+                            run,
+                            this::onPartial,
+                            conversation,
+                            signals
+                    ))
+                    .thenApplyAsync(output -> step(() -> applyOutput(output)), AppExecutorUtil.getAppExecutorService());
+        }
+
+        /**
+         * Writes the methods of a still running request into the test class as they complete, so the
+         * file fills up while the model works. The final {@code apply_test_class} still applies the
+         * whole answer; deletions and unfinished entries are left to it.
+         */
+        private void onPartial(Map<String, Object> args) {
+            run.checkCanceled();
+            String skeleton = skeletonStreamed ? null : Objects.toString(args.get("classSkeleton"), null);
+            boolean hasSkeleton = skeleton != null && !skeleton.isBlank();
+            if (!hasSkeleton && !skeletonStreamed && ReadAction.compute(testFile::get) == null) return; // nothing to merge into yet
+
+            List<BuilderUtil.TestMethod> fresh = new ArrayList<>();
+            if (args.get("methods") instanceof List<?> rawMethods) {
+                for (Object raw : rawMethods) {
+                    if (!(raw instanceof Map<?, ?> m)) continue;
+                    String methodName = Objects.toString(m.get("methodName"), null);
+                    String fullImpl = Objects.toString(m.get("fullImplementation"), "");
+                    if (methodName == null || fullImpl.isBlank() || fullImpl.equals(streamed.get(methodName))) continue;
+                    fresh.add(new BuilderUtil.TestMethod(methodName, fullImpl));
+                }
+            }
+            if (fresh.isEmpty() && !hasSkeleton) return;
+
+            if (BuilderUtil.mergeStreamedMethods(project, testFile, packageDir, testFileName,
+                    hasSkeleton ? skeleton : null, fresh, myConsole) == null) return;
+            if (hasSkeleton) skeletonStreamed = true;
+            for (BuilderUtil.TestMethod method : fresh) {
+                streamed.put(method.methodName, method.fullImplementation);
+                ConsolePrinter.info(myConsole, "Streamed " + method.methodName);
+                for (String line : method.fullImplementation.split("\\R")) {
+                    streamedLines = ConsolePrinter.printLine(myConsole, streamedLines, line);
+                }
+            }
+            compileEarly();
+        }
+
+        /**
+         * Compiles the partial class for early feedback on the first broken method. Only runs while
+         * the local stage is idle, one check at a time, and stops once it has reported errors.
+         */
+        private void compileEarly() {
+            if (earlyErrorsShown || !earlyCompile.isDone() || pipeline.localQueueDepth() > 0) return;
+            Ref<PsiFile> file = testFile;
+            earlyCompile = pipeline.local(run, () -> BuilderUtil.compileJUnitClassAsync(project, file, run))
+                    .thenAccept(errors -> {
+                        if (errors.isEmpty()) {
+                            ConsolePrinter.success(myConsole, "Streamed methods compile so far");
+                        } else {
+                            earlyErrorsShown = true;
+                            ConsolePrinter.warn(myConsole, "Streamed methods do not compile yet:\n" + errors);
+                        }
+                    })
+                    .exceptionally(t -> null);
+        }
+
+        /** Applies the model's tool calls. Returns the final result, or {@code null} to run another attempt. */
+        private @Nullable GenerationResult applyOutput(PromptResponseOutput output) throws Exception {
+            actualContents = new ArrayList<>(contents);
+            if (output.getContent() != null) budget.tag(output.getContent(), ContextBudgetManager.Kind.MODEL_OUTPUT, "previous model output");
+            actualContents.add(output.getContent());
+            if (output.getContent() != null) {
+                for (int i=0;i<10 && i < output.getContent().getParts().size();i++) {
+                    Content.Part p = output.getContent().getParts().get(i);
+                    if (p.getFunctionCall() != null) {
+                        Content.FunctionCall fc = p.getFunctionCall();
+                        String fn = fc.getName();
+                        Object args = fc.getArgs();
+                        switch (fn) {
+                            case "plan_test_changes": {
+                                if (args instanceof Map) {
+                                    Map<?, ?> argMap = (Map<?, ?>) args;
+                                    String testPlan = (String) argMap.get("testPlan");
+                                    ConsolePrinter.info(myConsole, "Fetching test plan: \n" + testPlan);
+                                    Content planContent = budget.tag(JAIPilotLLM.getTestPlanContent(testPlan), ContextBudgetManager.Kind.PLAN);
+                                    actualContents.add(planContent);
+                                    contents.add(planContent);
                                 }
-                                case "apply_test_class": {
-                                    if (args instanceof Map) {
-                                        Map<?, ?> argMap = (Map<?, ?>) args;
-                                        isLLMGeneratedAtLeastOnce = true;
-                                        try {
-                                            indicator.checkCanceled();
-                                            String classSkeleton = (String) argMap.get("classSkeleton");
-                                            // Convert methods array (if present)
-                                            List<Map<String, Object>> rawMethods = (List<Map<String, Object>>) argMap.get("methods");
-                                            List<BuilderUtil.TestMethod> methods = new ArrayList<>();
-                                            if (rawMethods != null) {
-                                                for (Map<String, Object> m : rawMethods) {
-                                                    String methodName = Objects.toString(m.get("methodName"), null);
-                                                    String fullImpl = Objects.toString(m.get("fullImplementation"), "");
-                                                    methods.add(new BuilderUtil.TestMethod(methodName, fullImpl));
-                                                }
+                                break;
+                            }
+                            case "apply_test_class": {
+                                if (args instanceof Map) {
+                                    Map<?, ?> argMap = (Map<?, ?>) args;
+                                    isLLMGeneratedAtLeastOnce = true;
+                                    try {
+                                        run.checkCanceled();
+                                        String classSkeleton = (String) argMap.get("classSkeleton");
+                                        // Convert methods array (if present)
+                                        List<Map<String, Object>> rawMethods = (List<Map<String, Object>>) argMap.get("methods");
+                                        List<BuilderUtil.TestMethod> methods = new ArrayList<>();
+                                        if (rawMethods != null) {
+                                            for (Map<String, Object> m : rawMethods) {
+                                                String methodName = Objects.toString(m.get("methodName"), null);
+                                                String fullImpl = Objects.toString(m.get("fullImplementation"), "");
+                                                methods.add(new BuilderUtil.TestMethod(methodName, fullImpl));
                                             }
-                                            newTestSource = BuilderUtil.buildAndWriteTestClass(
-                                                    project,testFile,
-                                                    packageDir, testFileName,
-                                                    classSkeleton,
-                                                    methods,
-                                                    myConsole
-                                            );
-                                            shouldRebuild = true;
-                                        } catch (Exception e) {
-                                            ConsolePrinter.info(myConsole, "⚠️ Error composing test class: " + e.getMessage());
-                                            continue;
                                         }
+                                        newTestSource = BuilderUtil.buildAndWriteTestClass(
+                                                project,testFile,
+                                                packageDir, testFileName,
+                                                classSkeleton,
+                                                methods,
+                                                myConsole
+                                        );
+                                        shouldRebuild = true;
+                                    } catch (ProcessCanceledException e) {
+                                        throw e;
+                                    } catch (Exception e) {
+                                        ConsolePrinter.info(myConsole, "⚠️ Error composing test class: " + e.getMessage());
+                                        continue;
                                     }
-                                    break;
                                 }
-                                case "fetch_mockito_version":
-                                    ConsolePrinter.info(myConsole, "Fetching mockito version");
-                                    Content mockitoVersionContent = JAIPilotLLM.getMockitoVersionContent(project);
-                                    actualContents.add(mockitoVersionContent);
-                                    contents.add(mockitoVersionContent);
-                                    break;
-                                case "get_file":
-                                    if (args instanceof Map) {
-                                        Map<?, ?> argMap = (Map<?, ?>) args;
-                                        String filePath = (String) argMap.get("filePath");
-
-                                        ConsolePrinter.info(myConsole, "Fetching file details: " + filePath);
-
-                                        if(isClassPathFetched.contains(filePath) || filePath.endsWith(testFileName) || filePath.endsWith(cutName+".java")) {
-                                            ConsolePrinter.info(myConsole, "Duplicate file - ignoring");
-                                            continue;
-                                        }
-                                        isClassPathFetched.add(filePath);
-                                        String toolResult = stripCommentsAndMethodBodies(project, filePath);
-
-                                        if (StringUtils.isEmpty(toolResult)) {
-                                            ConsolePrinter.info(myConsole, "No matches or file not found: " + filePath);
-                                            toolResult = filePath + " not found or no matches found.";
-                                        } else {
-                                            ConsolePrinter.success(myConsole, "Snippet(s): " + toolResult);
-                                            ConsolePrinter.success(myConsole, "Fetched file snippet(s): " + filePath);
-                                        }
-
-                                        actualContents.add(JAIPilotLLM.getContextSourceContent(toolResult));
-                                        contents.add(JAIPilotLLM.getContextSourceContent(toolResult));
-                                    }
-                                    break;
-                                case "terminate_call":
-                                    ConsolePrinter.warn(myConsole, "Attempts breached. I have tried my best to compile and execute tests. Please fix the remaining tests manually. ");
-                                    Telemetry.allGenError(String.valueOf(attempt), "terminate call");
-                                    return;
+                                break;
                             }
+                            case "fetch_mockito_version":
+                                ConsolePrinter.info(myConsole, "Fetching mockito version");
+                                Content mockitoVersionContent = budget.tag(JAIPilotLLM.getMockitoVersionContent(project), ContextBudgetManager.Kind.PLAN);
+                                actualContents.add(mockitoVersionContent);
+                                contents.add(mockitoVersionContent);
+                                break;
+                            case "get_file":
+                                if (args instanceof Map) {
+                                    Map<?, ?> argMap = (Map<?, ?>) args;
+                                    String filePath = (String) argMap.get("filePath");
+
+                                    ConsolePrinter.info(myConsole, "Fetching file details: " + filePath);
+
+                                    VirtualFile file = findContextClassFile(project, filePath);
+                                    boolean whole = file != null && slicedFiles.remove(file); // asked again after a slice
+                                    boolean fetched = !whole && isClassPathFetched.contains(filePath) && !budget.wasDropped(filePath);
+                                    if(fetched || filePath.endsWith(testFileName) || filePath.endsWith(cutName+".java")) {
+                                        ConsolePrinter.info(myConsole, "Duplicate file - ignoring");
+                                        continue;
+                                    }
+                                    isClassPathFetched.add(filePath);
+                                    String toolResult = file == null ? "" : skeletonOf(project, file, whole ? null : usage);
+                                    if (!whole && file != null && usage != null && usage.slices(file)) slicedFiles.add(file);
+
+                                    if (StringUtils.isEmpty(toolResult)) {
+                                        ConsolePrinter.info(myConsole, "No matches or file not found: " + filePath);
+                                        toolResult = filePath + " not found or no matches found.";
+                                    } else {
+                                        ConsolePrinter.success(myConsole, "Snippet(s): " + toolResult);
+                                        ConsolePrinter.success(myConsole, "Fetched file snippet(s): " + filePath);
+                                    }
+
+                                    Content snippet = budget.tag(JAIPilotLLM.getContextSourceContent(toolResult), ContextBudgetManager.Kind.DEPENDENCY, filePath);
+                                    actualContents.add(snippet);
+                                    contents.add(snippet);
+                                }
+                                break;
+                            case "terminate_call":
+                                ConsolePrinter.warn(myConsole, "Attempts breached. I have tried my best to compile and execute tests. Please fix the remaining tests manually. ");
+                                Telemetry.allGenError(String.valueOf(attempt), "terminate call");
+                                return result(GenerationResult.Status.INCOMPLETE, "terminate call");
                         }
                     }
                 }
+            }
 
-                // Server stop condition
-                if (output.getErrorCode() / 100 == 4) {
-                    throw new Exception(output.getErrorBody());
-                }
+            // Server stop condition
+            if (output.getErrorCode() / 100 == 4) {
+                throw new Exception(output.getErrorBody());
+            }
 
-                if (output.getErrorCode() == 504) {
-                    ConsolePrinter.warn(myConsole,
-                            "This class is too large for JAIPilot Free. Please upgrade to JAIPilot Pro to generate JUnit tests for larger classes.");
-                    break;
-                }
+            if (output.getErrorCode() == 504) {
+                ConsolePrinter.warn(myConsole,
+                        "This class is too large for JAIPilot Free. Please upgrade to JAIPilot Pro to generate JUnit tests for larger classes.");
+                status = GenerationResult.Status.INCOMPLETE;
+                return summary();
+            }
 
+            if (cutFqn != null) {
+                queue.saveCheckpoint(cutFqn, cutHash, contents, attempt + 1, newTestSource, isLLMGeneratedAtLeastOnce, isClassPathFetched);
             }
+            attempt++;
+            return null;
+        }
 
+        private GenerationResult summary() {
             long end = System.nanoTime();
             Telemetry.allGenDone(testFileName, String.valueOf(attempt), (end - start) / 1_000_000);
 
+            if (status == GenerationResult.Status.SUCCEEDED && cutFqn != null) {
+                // Lets change-driven generation skip this class until its source changes again
+                queue.recordGreen(cutFqn, cutHash);
+            }
+
             ConsolePrinter.section(myConsole, "Summary");
             ConsolePrinter.success(myConsole, "Successfully generated Test Class " + testFileName);
-            NotificationGroupManager.getInstance()
-                    .getNotificationGroup("JAIPilot - One-Click AI Agent for Java Unit Testing Feedback")
-                    .createNotification(
-                            "All tests generated!",
-                            """
-                            If JAIPilot helped you, please <a href="review">leave a review</a> ⭐️<br><br>
-                            Quick feedback: <a href="good">👍</a> &nbsp;&nbsp; <a href="bad">👎</a>
-                            """,
-                            NotificationType.INFORMATION
-                    )
-                    .setListener((notification, event) -> {
-                        if (event.getEventType() != HyperlinkEvent.EventType.ACTIVATED) {
-                            return;
-                        }
-
-                        String link = event.getDescription();
-
-                        switch (link) {
-                            case "review" -> {
-                                BrowserUtil.browse("https://plugins.jetbrains.com/plugin/27706-jaipilot--ai-unit-test-generator/edit/reviews/new");
-                                notification.expire();
-                            }
-                            case "good" -> {
-                                sendFeedback(AISettings.getInstance().getProKey(), 5, getAppVersion());
-                                showThanks(project);
-                                notification.expire();
-                            }
-                            case "bad" -> {
-                                sendFeedback(AISettings.getInstance().getProKey(), 1, getAppVersion());
-                                showThanks(project);
-                                notification.expire();
-                            }
-                        }
-                    })
-                    .notify(project);
+            return result(status, null);
+        }
 
-        } catch (Throwable t) {
+        private GenerationResult failed(Throwable error) {
+            if (GenerationRun.isCancellation(error)) {
+                return result(GenerationResult.Status.CANCELLED, "cancelled");
+            }
+            Throwable t = GenerationRun.unwrap(error);
             Telemetry.allGenError(String.valueOf(attempt), t.getMessage());
             ConsolePrinter.error(myConsole, "Generation failed: " + t.getMessage());
+            LOG.warn("JAIPilot generation failed for " + cutName, t);
+            return result(GenerationResult.Status.FAILED, t.getMessage());
+        }
+
+        private GenerationResult result(GenerationResult.Status status, @Nullable String message) {
+            return new GenerationResult(cutName, status, attempt, (System.nanoTime() - start) / 1_000_000, message);
+        }
 
-            t.printStackTrace();
-            ApplicationManager.getApplication().invokeLater(() ->
-                    Messages.showErrorDialog(t.getMessage(), "Error. Please retry in a few minutes.")
-            );
+        /** Runs a synchronous step inside a future chain, passing checked exceptions through. */
+        private <T> T step(Callable<T> body) {
+            try {
+                return body.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
         }
     }
 
+    /** Local pipeline stage: compiles the test class and, if that succeeds, runs it. Completes with "" when green. */
+    private static CompletableFuture<String> compileAndRunAsync(Project project, Ref<PsiFile> testFile, String testFileName,
+                                                                ConsoleView myConsole, GenerationRun run) {
+        ConsolePrinter.info(myConsole, "Compiling Tests " + testFileName);
+        run.checkCanceled();
+        return BuilderUtil.compileJUnitClassAsync(project, testFile, run).thenCompose(compileOutput -> {
+            if (!compileOutput.isEmpty()) {
+                ConsolePrinter.info(myConsole, "Found compilation errors " + testFileName);
+                return CompletableFuture.completedFuture(compileOutput);
+            }
+
+            ConsolePrinter.success(myConsole, "Compilation Successful " + testFileName);
+            ConsolePrinter.info(myConsole, "Running Tests " + testFileName);
+            run.checkCanceled();
+            return BuilderUtil.runJUnitClassAsync(project, testFile.get(), run).thenApply(errorOutput -> {
+                if (!errorOutput.isEmpty()) {
+                    ConsolePrinter.info(myConsole, "Found tests execution errors " + testFileName);
+                } else {
+                    ConsolePrinter.success(myConsole, "Tests execution successful " + testFileName);
+                }
+                return errorOutput;
+            });
+        });
+    }
+
+    /** Balloon shown once per run (single class or whole batch) asking for a review. */
+    static void notifyGenerated(Project project, String title) {
+        NotificationGroupManager.getInstance()
+                .getNotificationGroup("JAIPilot - One-Click AI Agent for Java Unit Testing Feedback")
+                .createNotification(
+                        title,
+                        """
+                        If JAIPilot helped you, please <a href="review">leave a review</a> ⭐️<br><br>
+                        Quick feedback: <a href="good">👍</a> &nbsp;&nbsp; <a href="bad">👎</a>
+                        """,
+                        NotificationType.INFORMATION
+                )
+                .setListener((notification, event) -> {
+                    if (event.getEventType() != HyperlinkEvent.EventType.ACTIVATED) {
+                        return;
+                    }
+
+                    String link = event.getDescription();
+
+                    switch (link) {
+                        case "review" -> {
+                            BrowserUtil.browse("https://plugins.jetbrains.com/plugin/27706-jaipilot--ai-unit-test-generator/edit/reviews/new");
+                            notification.expire();
+                        }
+                        case "good" -> {
+                            sendFeedback(AISettings.getInstance().getProKey(), 5, getAppVersion());
+                            showThanks(project);
+                            notification.expire();
+                        }
+                        case "bad" -> {
+                            sendFeedback(AISettings.getInstance().getProKey(), 1, getAppVersion());
+                            showThanks(project);
+                            notification.expire();
+                        }
+                    }
+                })
+                .notify(project);
+    }
+
     private static void sendFeedback(String usageKey, int rating, String version) {
         ApplicationManager.getApplication().executeOnPooledThread(() -> {
             try {
@@ -304,12 +547,12 @@ public final class TestGenerationWorker {
                 """.formatted(usageKey, rating, version);
 
                 HttpRequest req = HttpRequest.newBuilder()
-                        .uri(URI.create("https://otxfylhjrlaesjagfhfi.supabase.co/functions/v1/give-feedback"))
+                        .uri(JAIPilotHttpService.function("give-feedback"))
                         .header("Content-Type", "application/json")
                         .POST(HttpRequest.BodyPublishers.ofString(body))
                         .build();
 
-                HttpClient.newHttpClient().send(req, HttpResponse.BodyHandlers.discarding());
+                JAIPilotHttpService.getInstance().client().send(req, HttpResponse.BodyHandlers.discarding());
             } catch (Exception ignored) {}
         });
     }
@@ -352,8 +595,18 @@ public final class TestGenerationWorker {
     }
 
     public static String getSourceCodeOfContextClasses(Project project, String relativePathOrFqcn) {
+        VirtualFile file = findContextClassFile(project, relativePathOrFqcn);
+        if (file == null) return "";
+        return ReadAction.compute(() -> {
+            PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+            return psiFile != null && psiFile.isValid() ? psiFile.getText() : "";
+        });
+    }
+
+    /** The file behind a {@code get_file} argument: a path under a source or library root, or a class name. */
+    private static @Nullable VirtualFile findContextClassFile(Project project, String relativePathOrFqcn) {
         if (relativePathOrFqcn == null || relativePathOrFqcn.isBlank()) {
-            return "";
+            return null;
         }
 
         String normPath = relativePathOrFqcn.replace("\\", "/");
@@ -363,7 +616,7 @@ public final class TestGenerationWorker {
         if (vf != null) {
             PsiFile psiFile = ReadAction.compute(() -> PsiManager.getInstance(project).findFile(vf));
             if (psiFile != null && psiFile.isValid()) {
-                return ReadAction.compute(psiFile::getText);
+                return vf;
             }
         }
 
@@ -375,19 +628,38 @@ public final class TestGenerationWorker {
         if (psiClass != null && psiClass.isValid()) {
             PsiFile psiFile = ReadAction.compute(psiClass::getContainingFile);
             if (psiFile != null && psiFile.isValid()) {
-                return ReadAction.compute(psiFile::getText);
+                return psiFile.getVirtualFile();
             }
         }
 
-        return "";
+        return null;
     }
 
 
-    public static String stripCommentsAndMethodBodies(Project project, String relativePathOrFqcn) {
-        if (relativePathOrFqcn == null || relativePathOrFqcn.isBlank()) return "";
+    /**
+     * Signatures only, cached per file version, see {@link SkeletonCache}; cut down to the members
+     * {@code usage} references when it references any, see {@link MemberSlicer}.
+     */
+    static String skeletonOf(Project project, VirtualFile file, @Nullable MemberSlicer.Usage usage) {
+        if (LibraryStubs.isClassFile(file)) {
+            // Before any slicing: text offsets of a compiled member would decompile the class
+            String stub = SkeletonCache.getInstance().skeleton(file, "stub", () -> LibraryStubs.stub(project, file));
+            if (!stub.isBlank()) return stub;
+        }
+        String variant = usage == null ? null : usage.variant(file);
+        if (variant != null) {
+            String slice = SkeletonCache.getInstance().skeleton(file, variant, () -> usage.slice(project, file));
+            if (!slice.isBlank()) return slice;
+        }
+        return SkeletonCache.getInstance().skeleton(file, () -> stripCommentsAndMethodBodies(project, file, file.getName()));
+    }
 
+    private static String stripCommentsAndMethodBodies(Project project, VirtualFile file, String relativePathOrFqcn) {
         // --- Reuse existing utility to get raw source code text ---
-        String sourceText = getSourceCodeOfContextClasses(project, relativePathOrFqcn);
+        String sourceText = ReadAction.compute(() -> {
+            PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+            return psiFile != null && psiFile.isValid() ? psiFile.getText() : "";
+        });
         if (sourceText.isBlank()) return "";
 
         // --- Create temporary PSI file from text ---
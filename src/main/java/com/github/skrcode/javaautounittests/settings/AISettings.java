@@ -16,10 +16,23 @@ public class AISettings implements PersistentStateComponent<AISettings.State> {
     public static class State {
         public String proKey = "";
         public boolean telemetryEnabled = true;
+        public int maxParallelClasses = 4;
+        public boolean adaptiveConcurrency = true;
+        public boolean incrementalGeneration = false;
+        /** Off in the IDE, where a rerun is meant to ask the model again; headless runs default to READ_WRITE. */
+        public String llmCacheMode = "OFF";
+        public int llmCacheMaxMb = 256;
+        public int contextBudgetTokens = 100_000;
+        public boolean sliceDependencies = true;
+        public String backendUrl = "";
+        public String schedulerKeys = "UNTESTED,SIZE,DEPENDENCIES,HISTORY";
     }
 
     private State state = new State();
 
+    /** Process-only key, e.g. a headless run's {@code JAIPILOT_KEY}; never part of {@link State}. */
+    private volatile String proKeyOverride;
+
     public static AISettings getInstance() {
         return com.intellij.openapi.application.ApplicationManager
                 .getApplication()
@@ -38,7 +51,13 @@ public class AISettings implements PersistentStateComponent<AISettings.State> {
     }
 
     public String getProKey() {
-        return state.proKey;
+        String key = proKeyOverride;
+        return key != null ? key : state.proKey;
+    }
+
+    /** Uses {@code key} for this process without persisting it; null restores the saved key. */
+    public void overrideProKey(@Nullable String key) {
+        proKeyOverride = key;
     }
 
     public void setProKey(String key) {
@@ -48,4 +67,31 @@ public class AISettings implements PersistentStateComponent<AISettings.State> {
     public boolean isTelemetryEnabled() { return state.telemetryEnabled; }
     public void setTelemetryEnabled(boolean v) { state.telemetryEnabled = v; }
 
+    public int getMaxParallelClasses() { return Math.max(1, state.maxParallelClasses); }
+    public void setMaxParallelClasses(int v) { state.maxParallelClasses = Math.max(1, v); }
+
+    public boolean isAdaptiveConcurrency() { return state.adaptiveConcurrency; }
+    public void setAdaptiveConcurrency(boolean v) { state.adaptiveConcurrency = v; }
+
+    public boolean isIncrementalGeneration() { return state.incrementalGeneration; }
+    public void setIncrementalGeneration(boolean v) { state.incrementalGeneration = v; }
+
+    public String getLlmCacheMode() { return state.llmCacheMode; }
+    public void setLlmCacheMode(String v) { state.llmCacheMode = v; }
+
+    public int getLlmCacheMaxMb() { return Math.max(1, state.llmCacheMaxMb); }
+    public void setLlmCacheMaxMb(int v) { state.llmCacheMaxMb = Math.max(1, v); }
+
+    public int getContextBudgetTokens() { return Math.max(0, state.contextBudgetTokens); }
+    public void setContextBudgetTokens(int v) { state.contextBudgetTokens = Math.max(0, v); }
+
+    public boolean isSliceDependencies() { return state.sliceDependencies; }
+    public void setSliceDependencies(boolean v) { state.sliceDependencies = v; }
+
+    public String getBackendUrl() { return state.backendUrl; }
+    public void setBackendUrl(String v) { state.backendUrl = v; }
+
+    public String getSchedulerKeys() { return state.schedulerKeys; }
+    public void setSchedulerKeys(String v) { state.schedulerKeys = v; }
+
 }
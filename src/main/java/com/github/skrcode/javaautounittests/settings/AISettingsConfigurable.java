@@ -44,6 +44,15 @@ public class AISettingsConfigurable implements Configurable {
     private TextFieldWithBrowseButton testDirField;
 
     private JCheckBox telemetryCheck;
+    private JSpinner parallelClassesSpinner;
+    private JCheckBox adaptiveConcurrencyCheck;
+    private JCheckBox incrementalGenerationCheck;
+    private JComboBox<String> llmCacheModeCombo;
+    private JSpinner llmCacheSizeSpinner;
+    private JSpinner contextBudgetSpinner;
+    private JCheckBox sliceDependenciesCheck;
+    private JTextField schedulerKeysField;
+    private JTextField backendUrlField;
 
     private static final int GAP_BETWEEN_BLOCKS = 8;
     private static final int GAP_LABEL_TO_CONTROL = 4;
@@ -100,6 +109,59 @@ public class AISettingsConfigurable implements Configurable {
         telemetryCheck.setToolTipText("Sends only anonymized feature usage (no source code or personal data).");
         telemetryCheck.setAlignmentX(Component.LEFT_ALIGNMENT);
         addFormBlock(commonPanel, "General:", telemetryCheck);
+
+        parallelClassesSpinner = new JSpinner(new SpinnerNumberModel(4, 1, 64, 1));
+        parallelClassesSpinner.setToolTipText("Number of classes generated concurrently when a package or module is selected.");
+        parallelClassesSpinner.setMaximumSize(new Dimension(80, 30));
+        addFormBlock(commonPanel, "Parallel classes in bulk generation:", parallelClassesSpinner);
+
+        adaptiveConcurrencyCheck = new JCheckBox("Adapt parallelism to backend errors, latency and local build queue");
+        adaptiveConcurrencyCheck.setToolTipText("Starts at half the value above and never exceeds it. Decisions are logged in the batch console.");
+        adaptiveConcurrencyCheck.setAlignmentX(Component.LEFT_ALIGNMENT);
+        addFormBlock(commonPanel, null, adaptiveConcurrencyCheck);
+
+        incrementalGenerationCheck = new JCheckBox("Regenerate tests for production classes when they change");
+        incrementalGenerationCheck.setToolTipText("Changed classes are queued a few seconds after the last save. Classes whose tests passed against the current source are skipped.");
+        incrementalGenerationCheck.setAlignmentX(Component.LEFT_ALIGNMENT);
+        addFormBlock(commonPanel, null, incrementalGenerationCheck);
+
+        llmCacheModeCombo = new JComboBox<>(new String[]{"OFF", "READ_WRITE", "REPLAY_ONLY"});
+        llmCacheModeCombo.setToolTipText("READ_WRITE replays answers to identical requests and records new ones; REPLAY_ONLY fails on anything not recorded (for benchmarking).");
+        llmCacheModeCombo.setMaximumSize(new Dimension(160, 30));
+        addFormBlock(commonPanel, "Model response cache:", llmCacheModeCombo);
+
+        JLabel llmCacheNote = new JLabel(
+                "<html><div style='width:520px; color:#888;'>"
+                        + "With the cache on, regenerating an unchanged class replays the earlier answer instead of asking the model again. "
+                        + "Headless runs use READ_WRITE unless --llm-cache says otherwise."
+                        + "</div></html>"
+        );
+        addFormBlock(commonPanel, null, llmCacheNote);
+
+        llmCacheSizeSpinner = new JSpinner(new SpinnerNumberModel(256, 1, 16384, 64));
+        llmCacheSizeSpinner.setToolTipText("Least recently used answers are evicted beyond this size.");
+        llmCacheSizeSpinner.setMaximumSize(new Dimension(80, 30));
+        addFormBlock(commonPanel, "Response cache size (MB):", llmCacheSizeSpinner);
+
+        contextBudgetSpinner = new JSpinner(new SpinnerNumberModel(100_000, 0, 2_000_000, 10_000));
+        contextBudgetSpinner.setToolTipText("Fetched dependencies, old model output and long error logs are shortened or dropped to stay below this estimate. 0 = no limit.");
+        contextBudgetSpinner.setMaximumSize(new Dimension(100, 30));
+        addFormBlock(commonPanel, "Context budget per request (tokens):", contextBudgetSpinner);
+
+        sliceDependenciesCheck = new JCheckBox("Send only the members of dependencies that the class under test uses");
+        sliceDependenciesCheck.setToolTipText("Dependency skeletons keep constructors, supertypes and the members the class calls; other members are left out.");
+        sliceDependenciesCheck.setAlignmentX(Component.LEFT_ALIGNMENT);
+        addFormBlock(commonPanel, null, sliceDependenciesCheck);
+
+        schedulerKeysField = new JTextField();
+        schedulerKeysField.setToolTipText("Comma separated, applied left to right: UNTESTED, SIZE, DEPENDENCIES, HISTORY");
+        sizeField(schedulerKeysField, new Dimension(520, 30));
+        addFormBlock(commonPanel, "Bulk generation order:", schedulerKeysField);
+
+        backendUrlField = new JTextField();
+        backendUrlField.setToolTipText("Leave empty for the JAIPilot service. Set to a local fake backend (e.g. http://127.0.0.1:8787/) for offline profiling.");
+        sizeField(backendUrlField, new Dimension(520, 30));
+        addFormBlock(commonPanel, "Backend URL (advanced):", backendUrlField);
         contentPanel.add(commonPanel);
         contentPanel.add(Box.createVerticalStrut(8));
 
@@ -204,6 +266,15 @@ public class AISettingsConfigurable implements Configurable {
         AISettings app = AISettings.getInstance();
         jaipilotKeyField.setText(app.getProKey());
         telemetryCheck.setSelected(app.isTelemetryEnabled());
+        parallelClassesSpinner.setValue(app.getMaxParallelClasses());
+        adaptiveConcurrencyCheck.setSelected(app.isAdaptiveConcurrency());
+        incrementalGenerationCheck.setSelected(app.isIncrementalGeneration());
+        llmCacheModeCombo.setSelectedItem(app.getLlmCacheMode());
+        llmCacheSizeSpinner.setValue(app.getLlmCacheMaxMb());
+        contextBudgetSpinner.setValue(app.getContextBudgetTokens());
+        sliceDependenciesCheck.setSelected(app.isSliceDependencies());
+        schedulerKeysField.setText(app.getSchedulerKeys());
+        backendUrlField.setText(app.getBackendUrl());
 
         String projectTestDir = AIProjectSettings.getInstance(project).getTestDirectory();
         if (StringUtil.isEmptyOrSpaces(projectTestDir)) {
@@ -299,7 +370,16 @@ public class AISettingsConfigurable implements Configurable {
 
         return !StringUtil.equals(jaipilotKeyField.getText(), StringUtil.notNullize(app.proKey))
                 || !StringUtil.equals(StringUtil.notNullize(testDirField.getText()), StringUtil.notNullize(projTestDir))
-                || telemetryCheck.isSelected() != AISettings.getInstance().isTelemetryEnabled();
+                || telemetryCheck.isSelected() != AISettings.getInstance().isTelemetryEnabled()
+                || (Integer) parallelClassesSpinner.getValue() != AISettings.getInstance().getMaxParallelClasses()
+                || adaptiveConcurrencyCheck.isSelected() != AISettings.getInstance().isAdaptiveConcurrency()
+                || incrementalGenerationCheck.isSelected() != AISettings.getInstance().isIncrementalGeneration()
+                || !StringUtil.equals((String) llmCacheModeCombo.getSelectedItem(), AISettings.getInstance().getLlmCacheMode())
+                || (Integer) llmCacheSizeSpinner.getValue() != AISettings.getInstance().getLlmCacheMaxMb()
+                || (Integer) contextBudgetSpinner.getValue() != AISettings.getInstance().getContextBudgetTokens()
+                || sliceDependenciesCheck.isSelected() != AISettings.getInstance().isSliceDependencies()
+                || !StringUtil.equals(schedulerKeysField.getText(), StringUtil.notNullize(app.schedulerKeys))
+                || !StringUtil.equals(backendUrlField.getText(), StringUtil.notNullize(app.backendUrl));
     }
 
     @Override
@@ -307,6 +387,15 @@ public class AISettingsConfigurable implements Configurable {
         AISettings app = AISettings.getInstance();
         app.setProKey(jaipilotKeyField.getText());
         app.setTelemetryEnabled(telemetryCheck.isSelected());
+        app.setMaxParallelClasses((Integer) parallelClassesSpinner.getValue());
+        app.setAdaptiveConcurrency(adaptiveConcurrencyCheck.isSelected());
+        app.setIncrementalGeneration(incrementalGenerationCheck.isSelected());
+        app.setLlmCacheMode((String) llmCacheModeCombo.getSelectedItem());
+        app.setLlmCacheMaxMb((Integer) llmCacheSizeSpinner.getValue());
+        app.setContextBudgetTokens((Integer) contextBudgetSpinner.getValue());
+        app.setSliceDependencies(sliceDependenciesCheck.isSelected());
+        app.setSchedulerKeys(StringUtil.notNullize(schedulerKeysField.getText()));
+        app.setBackendUrl(StringUtil.notNullize(backendUrlField.getText()).trim());
 
         AIProjectSettings proj = AIProjectSettings.getInstance(project);
         proj.setTestDirectory(StringUtil.notNullize(testDirField.getText()));
@@ -320,6 +409,15 @@ public class AISettingsConfigurable implements Configurable {
         String projTestDir = AIProjectSettings.getInstance(project).getTestDirectory();
         testDirField.setText(StringUtil.notNullize(projTestDir));
         telemetryCheck.setSelected(AISettings.getInstance().isTelemetryEnabled());
+        parallelClassesSpinner.setValue(AISettings.getInstance().getMaxParallelClasses());
+        adaptiveConcurrencyCheck.setSelected(AISettings.getInstance().isAdaptiveConcurrency());
+        incrementalGenerationCheck.setSelected(AISettings.getInstance().isIncrementalGeneration());
+        llmCacheModeCombo.setSelectedItem(AISettings.getInstance().getLlmCacheMode());
+        llmCacheSizeSpinner.setValue(AISettings.getInstance().getLlmCacheMaxMb());
+        contextBudgetSpinner.setValue(AISettings.getInstance().getContextBudgetTokens());
+        sliceDependenciesCheck.setSelected(AISettings.getInstance().isSliceDependencies());
+        schedulerKeysField.setText(StringUtil.notNullize(app.schedulerKeys));
+        backendUrlField.setText(StringUtil.notNullize(app.backendUrl));
     }
 
     private void open(String url) {
@@ -0,0 +1,186 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests.settings;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker and retry budget shared by every backend call of the IDE.
+ *
+ *   • CLOSED    → calls go out; {@link #FAILURE_THRESHOLD} failures in a row open the breaker
+ *   • OPEN      → calls park (as futures, no threads) for the cool-down, which doubles up to
+ *                 {@link #MAX_COOLDOWN_MS} while the backend stays down
+ *   • HALF_OPEN → a single probe goes out; its success closes the breaker and releases everyone,
+ *                 its failure opens it again
+ *
+ * Retries draw from one budget: each success earns {@link #TOKENS_PER_SUCCESS} of a retry, up to
+ * {@link #MAX_TOKENS}. An empty budget means failures are systemic, so instead of retrying the
+ * breaker opens – a 200-class batch then sends one probe per cool-down rather than 200 retries.
+ */
+public final class BackendCircuitBreaker {
+
+    private static final Logger LOG = Logger.getInstance(BackendCircuitBreaker.class);
+
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long MIN_COOLDOWN_MS = 15_000;
+    private static final long MAX_COOLDOWN_MS = 120_000;
+    /** A probe that never reports back (e.g. its class was cancelled) stops blocking after this. */
+    private static final long PROBE_TIMEOUT_MS = 60_000;
+    private static final double MAX_TOKENS = 10;
+    private static final double TOKENS_PER_SUCCESS = 0.2;
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final LongSupplier clock;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long cooldownMs = MIN_COOLDOWN_MS;
+    private long openUntil;
+    private long probeStarted;
+    private boolean probeInFlight;
+    private double retryTokens = MAX_TOKENS;
+    private final Deque<CompletableFuture<Boolean>> parked = new ArrayDeque<>();
+
+    public BackendCircuitBreaker() {
+        this(System::currentTimeMillis);
+    }
+
+    /** With a clock in milliseconds, so tests can let a cool-down pass. */
+    BackendCircuitBreaker(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Completes when a call may go out: at once while closed, after the cool-down otherwise. Completes
+     * with {@code true} for the half-open probe, whose caller must report its outcome (or
+     * {@link #abandonProbe()} when it does not send after all).
+     */
+    public synchronized CompletableFuture<Boolean> permit() {
+        if (state == State.CLOSED) return CompletableFuture.completedFuture(false);
+        if (mayProbe()) {
+            startProbe();
+            return CompletableFuture.completedFuture(true);
+        }
+        CompletableFuture<Boolean> waiter = new CompletableFuture<>();
+        parked.add(waiter);
+        return waiter;
+    }
+
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    /** Takes one retry from the shared budget; when it is empty the breaker opens instead. */
+    public boolean tryRetry() {
+        synchronized (this) {
+            if (retryTokens >= 1) {
+                retryTokens -= 1;
+                return true;
+            }
+            if (state == State.CLOSED) open("retry budget exhausted");
+        }
+        return false;
+    }
+
+    /** Any HTTP answer below 500 except 429 means the backend is serving. */
+    public void record(int statusCode) {
+        if (statusCode >= 500 || statusCode == 429) onFailure();
+        else onSuccess();
+    }
+
+    public void onSuccess() {
+        List<CompletableFuture<Boolean>> released;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            retryTokens = Math.min(MAX_TOKENS, retryTokens + TOKENS_PER_SUCCESS);
+            if (state == State.CLOSED) return;
+            LOG.info("JAIPilot backend recovered, closing circuit breaker");
+            state = State.CLOSED;
+            probeInFlight = false;
+            cooldownMs = MIN_COOLDOWN_MS;
+            released = new ArrayList<>(parked);
+            parked.clear();
+        }
+        for (CompletableFuture<Boolean> waiter : released) waiter.complete(false);
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            cooldownMs = Math.min(cooldownMs * 2, MAX_COOLDOWN_MS);
+            open("probe failed");
+        } else if (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD) {
+            open(consecutiveFailures + " failures in a row");
+        }
+    }
+
+    /** The probe's caller gave up before sending; lets the next parked call probe instead. */
+    public void abandonProbe() {
+        CompletableFuture<Boolean> next;
+        synchronized (this) {
+            if (state != State.HALF_OPEN || !probeInFlight) return;
+            probeInFlight = false;
+            next = nextProbe();
+        }
+        if (next != null) next.complete(true);
+    }
+
+    // --- internals, called with the lock held unless noted ---
+
+    private void open(String reason) {
+        state = State.OPEN;
+        probeInFlight = false;
+        openUntil = clock.getAsLong() + cooldownMs;
+        LOG.warn("JAIPilot backend circuit breaker open for " + cooldownMs / 1000 + " s: " + reason);
+        wakeAfter(cooldownMs);
+    }
+
+    private boolean mayProbe() {
+        long now = clock.getAsLong();
+        if (state == State.OPEN) return now >= openUntil;
+        return !probeInFlight || now - probeStarted > PROBE_TIMEOUT_MS;
+    }
+
+    private void startProbe() {
+        state = State.HALF_OPEN;
+        probeInFlight = true;
+        probeStarted = clock.getAsLong();
+        wakeAfter(PROBE_TIMEOUT_MS);
+    }
+
+    private CompletableFuture<Boolean> nextProbe() {
+        while (!parked.isEmpty()) {
+            CompletableFuture<Boolean> waiter = parked.poll();
+            if (!waiter.isDone()) {
+                startProbe();
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    private void wakeAfter(long delayMs) {
+        AppExecutorUtil.getAppScheduledExecutorService().schedule(this::wake, delayMs + 10, TimeUnit.MILLISECONDS);
+    }
+
+    /** Timer: hands the probe to a parked call once the cool-down or a stuck probe has expired. Not locked. */
+    private void wake() {
+        CompletableFuture<Boolean> probe;
+        synchronized (this) {
+            if (state == State.CLOSED || !mayProbe()) return;
+            probe = nextProbe();
+        }
+        if (probe != null) probe.complete(true);
+    }
+}
@@ -0,0 +1,139 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests.settings;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * One directory of files named {@code <key><suffix>}, written atomically and evicted least
+ * recently used first once they outgrow a byte cap. The LRU position is the file's modification
+ * time, which every read refreshes. Backs the JAIPilot disk caches and conversation checkpoints.
+ */
+public final class DiskLruStore {
+
+    /** Writes an entry's content to a file that becomes the entry once complete. */
+    @FunctionalInterface
+    public interface Writer {
+        void write(Path file) throws IOException;
+    }
+
+    private final Path dir;
+    private final String suffix;
+    private final LongSupplier maxBytes;
+    private long totalBytes = -1; // scanned on first write
+
+    /** {@code maxBytes} is asked on every write, so a changed setting applies right away. */
+    public DiskLruStore(@NotNull Path dir, @NotNull String suffix, @NotNull LongSupplier maxBytes) {
+        this.dir = dir;
+        this.suffix = suffix;
+        this.maxBytes = maxBytes;
+    }
+
+    /** The file of {@code key} when it exists, now most recently used. */
+    public @Nullable Path get(@NotNull String key) {
+        Path file = file(key);
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+            // still readable, merely keeps its LRU position
+        }
+        return file;
+    }
+
+    public @Nullable String getString(@NotNull String key) {
+        Path file = get(key);
+        if (file == null) return null;
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Replaces the entry of {@code key} with what {@code writer} writes, then evicts if over the cap. */
+    public void put(@NotNull String key, @NotNull Writer writer) throws IOException {
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, key, ".tmp");
+        try {
+            writer.write(tmp);
+            long size = Files.size(tmp);
+            Path file = file(key);
+            long replaced = Files.isRegularFile(file) ? Files.size(file) : 0;
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            account(size - replaced);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public void putString(@NotNull String key, @NotNull String content) throws IOException {
+        put(key, file -> Files.writeString(file, content, StandardCharsets.UTF_8));
+    }
+
+    public boolean delete(@NotNull String key) {
+        Path file = file(key);
+        try {
+            long size = Files.isRegularFile(file) ? Files.size(file) : 0;
+            if (!Files.deleteIfExists(file)) return false;
+            synchronized (this) {
+                if (totalBytes >= 0) totalBytes -= size;
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Path file(String key) {
+        return dir.resolve(key + suffix);
+    }
+
+    private synchronized void account(long delta) throws IOException {
+        if (totalBytes < 0) {
+            totalBytes = 0;
+            for (Path file : entries()) totalBytes += Files.size(file);
+        } else {
+            totalBytes += delta;
+        }
+        long max = maxBytes.getAsLong();
+        if (totalBytes <= max) return;
+
+        // Evict down to 90% so not every later write pays for a directory scan
+        List<Path> files = entries();
+        files.sort(Comparator.comparingLong(DiskLruStore::lastModified));
+        for (Path file : files) {
+            if (totalBytes <= max - max / 10) break;
+            long size = Files.size(file);
+            if (Files.deleteIfExists(file)) totalBytes -= size;
+        }
+    }
+
+    private List<Path> entries() throws IOException {
+        if (!Files.isDirectory(dir)) return new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            return new ArrayList<>(files.filter(f -> f.getFileName().toString().endsWith(suffix)).toList());
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests.settings;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.skrcode.javaautounittests.DTOs.Content;
+import com.github.skrcode.javaautounittests.DTOs.GenerationResult;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.components.StoragePathMacros;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.io.DigestUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Project-level, persisted generation queue. Records every class of a batch as pending,
+ * in-progress or finished together with its last conversation checkpoint, so a batch
+ * interrupted by an IDE restart or crash resumes where it stopped instead of paying again
+ * for LLM attempts that already happened.
+ *
+ * Stored in the project cache file – it is machine-local state, not something to share. The
+ * conversation itself (CUT, fetched sources, logs, the last test class) is too large to rewrite
+ * with every state save, so each checkpoint is a file under the IDE system directory that the
+ * entry refers to. It is deleted once the class is done or cancelled, and finished entries
+ * beyond {@link #MAX_FINISHED} or older than {@link #MAX_AGE_MS} are dropped.
+ */
+@State(name = "JAIPilotGenerationQueue", storages = @Storage(StoragePathMacros.CACHE_FILE))
+@Service(Service.Level.PROJECT)
+public final class GenerationQueueState implements PersistentStateComponent<GenerationQueueState.State> {
+
+    private static final Logger LOG = Logger.getInstance(GenerationQueueState.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MAX_FINISHED = 1000;
+    private static final long MAX_AGE_MS = 90L * 24 * 60 * 60 * 1000;
+
+    public enum Status { PENDING, IN_PROGRESS, DONE, FAILED, CANCELLED }
+
+    public static final class Entry {
+        public String classFqn = "";
+        public Status status = Status.PENDING;
+        /** Test source root the class was queued for; empty for the project's configured one. */
+        public String testRoot = "";
+
+        /** Last change of the entry, for pruning. */
+        public long updatedAt = 0;
+
+        // --- checkpoint of the running conversation; checkpointFile keys its contents on disk ---
+        public String cutHash = "";
+        public int attempt = 1;
+        public String checkpointFile = "";
+        public boolean llmGenerated = false;
+        public List<String> fetchedPaths = new ArrayList<>();
+
+        // --- history of the last finished run ---
+        public int lastAttempts = 0;
+        public long lastDurationMs = 0;
+        public String lastOutcome = "";
+        /** Hash of the CUT the test class last went green for; empty once a later run did not end green. */
+        public String greenCutHash = "";
+
+        public boolean hasCheckpoint() {
+            return checkpointFile != null && !checkpointFile.isEmpty();
+        }
+    }
+
+    /** A conversation to resume, as read back from its checkpoint file. */
+    public record Checkpoint(List<Content> contents, int attempt, String lastTestSource, boolean llmGenerated,
+                             List<String> fetchedPaths) {}
+
+    /** What goes into a checkpoint file. */
+    public static final class CheckpointData {
+        public List<Content> contents = new ArrayList<>();
+        public String lastTestSource = "";
+    }
+
+    public static final class State {
+        /** Only read from state saved before each entry had its own test root. */
+        public String testRoot = "";
+        public List<Entry> entries = new ArrayList<>();
+    }
+
+    private State state = new State();
+    /** Checkpoints are deleted explicitly, never evicted. */
+    private final DiskLruStore checkpoints;
+
+    public GenerationQueueState(@NotNull Project project) {
+        this.checkpoints = new DiskLruStore(Paths.get(PathManager.getSystemPath(), "jaipilot", "checkpoints",
+                project.getLocationHash()), ".json", () -> Long.MAX_VALUE);
+    }
+
+    public static GenerationQueueState getInstance(@NotNull Project project) {
+        return project.getService(GenerationQueueState.class);
+    }
+
+    @Nullable @Override
+    public synchronized State getState() { return state; }
+
+    @Override
+    public synchronized void loadState(@NotNull State state) {
+        this.state = state;
+        long now = System.currentTimeMillis();
+        for (Entry entry : state.entries) {
+            if (entry.updatedAt == 0) entry.updatedAt = now; // saved before entries had a timestamp
+            if (entry.testRoot == null || entry.testRoot.isEmpty()) entry.testRoot = state.testRoot;
+        }
+        state.testRoot = "";
+        prune();
+    }
+
+    /** Adds classes as pending. Classes already known keep their checkpoint and history. */
+    public synchronized void enqueue(@NotNull List<String> classFqns, @Nullable String testRoot) {
+        for (String fqn : classFqns) {
+            Entry entry = find(fqn);
+            if (entry == null) {
+                entry = new Entry();
+                entry.classFqn = fqn;
+                state.entries.add(entry);
+            }
+            entry.status = Status.PENDING;
+            entry.testRoot = testRoot == null ? "" : testRoot;
+            entry.updatedAt = System.currentTimeMillis();
+        }
+        prune();
+    }
+
+    public synchronized void markInProgress(@NotNull String classFqn) {
+        Entry entry = find(classFqn);
+        if (entry == null) return;
+        entry.status = Status.IN_PROGRESS;
+        entry.updatedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Last checkpoint of the class, or {@code null} when there is none, it cannot be read or the
+     * CUT changed since it was taken (a stale conversation would only confuse the model).
+     */
+    public synchronized @Nullable Checkpoint checkpointFor(@NotNull String classFqn, @NotNull String cutHash) {
+        Entry entry = find(classFqn);
+        if (entry == null || !entry.hasCheckpoint()) return null;
+        if (!cutHash.equals(entry.cutHash)) {
+            clearCheckpoint(entry);
+            return null;
+        }
+        Path file = checkpoints.get(entry.checkpointFile);
+        CheckpointData data;
+        try {
+            if (file == null) throw new IOException("missing " + entry.checkpointFile);
+            data = MAPPER.readValue(file.toFile(), CheckpointData.class);
+        } catch (Exception e) {
+            LOG.warn("Unreadable JAIPilot checkpoint for " + classFqn, e);
+            clearCheckpoint(entry);
+            return null;
+        }
+        if (data.contents == null || data.contents.isEmpty()) {
+            clearCheckpoint(entry);
+            return null;
+        }
+        return new Checkpoint(data.contents, entry.attempt, data.lastTestSource == null ? "" : data.lastTestSource,
+                entry.llmGenerated, new ArrayList<>(entry.fetchedPaths));
+    }
+
+    public synchronized void saveCheckpoint(@NotNull String classFqn, @NotNull String cutHash, @NotNull List<Content> contents,
+                                            int nextAttempt, @Nullable String lastTestSource, boolean llmGenerated,
+                                            @NotNull Collection<String> fetchedPaths) {
+        Entry entry = find(classFqn);
+        if (entry == null) return;
+        CheckpointData data = new CheckpointData();
+        data.contents = contents;
+        data.lastTestSource = lastTestSource == null ? "" : lastTestSource;
+        String name = DigestUtil.sha256Hex(classFqn.getBytes(StandardCharsets.UTF_8));
+        try {
+            checkpoints.put(name, file -> MAPPER.writeValue(file.toFile(), data));
+        } catch (Exception e) {
+            LOG.warn("Cannot checkpoint JAIPilot conversation for " + classFqn, e);
+            return;
+        }
+        entry.checkpointFile = name;
+        entry.cutHash = cutHash;
+        entry.attempt = nextAttempt;
+        entry.llmGenerated = llmGenerated;
+        entry.fetchedPaths = new ArrayList<>(fetchedPaths);
+        entry.updatedAt = System.currentTimeMillis();
+    }
+
+    /** Remembers that the tests of {@code classFqn} passed against this exact CUT source. */
+    public synchronized void recordGreen(@NotNull String classFqn, @NotNull String cutHash) {
+        Entry entry = find(classFqn);
+        if (entry == null) return;
+        entry.greenCutHash = cutHash;
+        entry.updatedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Records the outcome of a run. A batch interrupted by IDE shutdown or by cancelling the whole
+     * background task stays pending; only an explicit per-class cancel takes the class out of the queue.
+     */
+    public synchronized void complete(@NotNull String classFqn, @NotNull GenerationResult result, boolean cancelledByUser) {
+        Entry entry = find(classFqn);
+        if (entry == null) return;
+        switch (result.status) {
+            case SUCCEEDED -> {
+                entry.status = Status.DONE;
+                clearCheckpoint(entry);
+            }
+            case INCOMPLETE -> {
+                entry.status = Status.DONE;
+                clearCheckpoint(entry);
+                entry.greenCutHash = "";
+            }
+            case FAILED -> {
+                entry.status = Status.FAILED;
+                entry.greenCutHash = "";
+            }
+            case CANCELLED -> {
+                entry.status = cancelledByUser ? Status.CANCELLED : Status.PENDING;
+                if (cancelledByUser) clearCheckpoint(entry);
+            }
+        }
+        entry.updatedAt = System.currentTimeMillis();
+        if (result.status != GenerationResult.Status.CANCELLED) {
+            entry.lastAttempts = result.attempts;
+            entry.lastDurationMs = result.durationMs;
+            entry.lastOutcome = result.status.name();
+        }
+    }
+
+    /** Classes a previous session left unfinished, in queue order. */
+    public synchronized List<String> unfinished() {
+        List<String> out = new ArrayList<>();
+        for (Entry entry : state.entries) {
+            if (entry.status == Status.PENDING || entry.status == Status.IN_PROGRESS) out.add(entry.classFqn);
+        }
+        return out;
+    }
+
+    /** Same, grouped by the test root they were queued for, see {@link Entry#testRoot}. */
+    public synchronized Map<String, List<String>> unfinishedByTestRoot() {
+        Map<String, List<String>> out = new LinkedHashMap<>();
+        for (Entry entry : state.entries) {
+            if (entry.status == Status.PENDING || entry.status == Status.IN_PROGRESS) {
+                out.computeIfAbsent(entry.testRoot == null ? "" : entry.testRoot, k -> new ArrayList<>()).add(entry.classFqn);
+            }
+        }
+        return out;
+    }
+
+    /** Drops unfinished classes (and their checkpoints) but keeps the history of finished ones. */
+    public synchronized void discardUnfinished() {
+        for (Entry entry : state.entries) {
+            if (entry.status == Status.PENDING || entry.status == Status.IN_PROGRESS) {
+                entry.status = Status.CANCELLED;
+                clearCheckpoint(entry);
+            }
+        }
+    }
+
+    public synchronized void remove(@NotNull String classFqn) {
+        Entry entry = find(classFqn);
+        if (entry == null) return;
+        clearCheckpoint(entry);
+        state.entries.remove(entry);
+    }
+
+    public synchronized @Nullable Entry get(@NotNull String classFqn) {
+        Entry entry = find(classFqn);
+        return entry == null ? null : copy(entry);
+    }
+
+    private void clearCheckpoint(Entry entry) {
+        if (entry.hasCheckpoint()) checkpoints.delete(entry.checkpointFile);
+        entry.cutHash = "";
+        entry.attempt = 1;
+        entry.checkpointFile = "";
+        entry.llmGenerated = false;
+        entry.fetchedPaths = new ArrayList<>();
+    }
+
+    /** Drops finished entries past their age or beyond {@link #MAX_FINISHED}, oldest first, with their checkpoints. */
+    private void prune() {
+        long cutoff = System.currentTimeMillis() - MAX_AGE_MS;
+        List<Entry> finished = new ArrayList<>();
+        for (Entry entry : state.entries) {
+            if (entry.status != Status.PENDING && entry.status != Status.IN_PROGRESS) finished.add(entry);
+        }
+        finished.sort(Comparator.comparingLong((Entry e) -> e.updatedAt));
+        int excess = finished.size() - MAX_FINISHED;
+        for (Entry entry : finished) {
+            if (excess <= 0 && entry.updatedAt >= cutoff) break;
+            clearCheckpoint(entry);
+            state.entries.remove(entry);
+            excess--;
+        }
+    }
+
+    private Entry find(String classFqn) {
+        for (Entry entry : state.entries) {
+            if (entry.classFqn.equals(classFqn)) return entry;
+        }
+        return null;
+    }
+
+    private static Entry copy(Entry e) {
+        Entry c = new Entry();
+        c.classFqn = e.classFqn;
+        c.status = e.status;
+        c.testRoot = e.testRoot;
+        c.cutHash = e.cutHash;
+        c.attempt = e.attempt;
+        c.checkpointFile = e.checkpointFile;
+        c.updatedAt = e.updatedAt;
+        c.llmGenerated = e.llmGenerated;
+        c.fetchedPaths = new ArrayList<>(e.fetchedPaths);
+        c.lastAttempts = e.lastAttempts;
+        c.lastDurationMs = e.lastDurationMs;
+        c.lastOutcome = e.lastOutcome;
+        c.greenCutHash = e.greenCutHash;
+        return c;
+    }
+}
@@ -0,0 +1,137 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests.settings;
+
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Cancellation / lifecycle token of one class generation.
+ *
+ * A run is cancelled either directly (console Cancel button) or through the batch indicator it
+ * was started under. Cancelling one run never affects other runs: its pending futures (HTTP
+ * calls, compile, test run, queued pipeline slots) fail with {@link ProcessCanceledException}
+ * and a running test process is destroyed through the registered {@link #onCancel(Runnable)}
+ * callbacks.
+ */
+public final class GenerationRun {
+
+    private final String name;
+    private final ProgressIndicator parent;
+    private final List<Runnable> cancelCallbacks = new ArrayList<>(); // guarded by itself
+    private volatile boolean cancelled;
+    private volatile boolean finished;
+
+    GenerationRun(@NotNull String name, @NotNull ProgressIndicator parent) {
+        this.name = name;
+        this.parent = parent;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void cancel() {
+        if (cancelled || finished) return;
+        cancelled = true;
+        fireCancelCallbacks();
+    }
+
+    public boolean isCancelled() {
+        return cancelled || parent.isCanceled();
+    }
+
+    /** {@code true} only for an explicit cancel of this run, not for a cancelled batch or IDE shutdown. */
+    public boolean isCancelledByUser() {
+        return cancelled;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    void finish() {
+        finished = true;
+        synchronized (cancelCallbacks) {
+            cancelCallbacks.clear();
+        }
+    }
+
+    /** Throws {@link ProcessCanceledException} if this run or its batch has been cancelled. */
+    public void checkCanceled() {
+        if (cancelled) throw new ProcessCanceledException();
+        parent.checkCanceled();
+    }
+
+    /**
+     * Registers a callback fired once when the run is cancelled (immediately if it already is).
+     * The returned handle unregisters it.
+     */
+    public Runnable onCancel(@NotNull Runnable callback) {
+        // Checked under the same lock the callbacks are drained with, so a cancel racing with
+        // this either sees the callback registered or is seen here
+        synchronized (cancelCallbacks) {
+            if (!cancelled && !parent.isCanceled()) {
+                cancelCallbacks.add(callback);
+                return () -> {
+                    synchronized (cancelCallbacks) {
+                        cancelCallbacks.remove(callback);
+                    }
+                };
+            }
+        }
+        callback.run();
+        return () -> {};
+    }
+
+    /**
+     * Ties the future to this run: it is completed with {@link ProcessCanceledException} as soon as
+     * the run (or its batch, see {@link #cancelIfParentCancelled()}) is cancelled.
+     */
+    public <T> CompletableFuture<T> cancellable(@NotNull CompletableFuture<T> future) {
+        Runnable unregister = onCancel(() -> future.completeExceptionally(new ProcessCanceledException()));
+        future.whenComplete((r, t) -> unregister.run());
+        return future;
+    }
+
+    /**
+     * Async stages have no thread polling the batch indicator, so whoever watches it calls this
+     * to fire the cancel callbacks once the batch is cancelled. Does not count as a user cancel.
+     */
+    public void cancelIfParentCancelled() {
+        if (!finished && parent.isCanceled()) fireCancelCallbacks();
+    }
+
+    /** Unwraps {@link CompletionException}/{@link ExecutionException} layers added by future chains. */
+    public static Throwable unwrap(@NotNull Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    public static boolean isCancellation(@NotNull Throwable t) {
+        Throwable cause = unwrap(t);
+        return cause instanceof ProcessCanceledException || cause instanceof CancellationException;
+    }
+
+    private void fireCancelCallbacks() {
+        List<Runnable> callbacks;
+        synchronized (cancelCallbacks) {
+            callbacks = List.copyOf(cancelCallbacks);
+            cancelCallbacks.clear();
+        }
+        for (Runnable callback : callbacks) {
+            try {
+                callback.run();
+            } catch (Throwable ignored) {}
+        }
+    }
+}
@@ -0,0 +1,90 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests.settings;
+
+import com.intellij.execution.ui.ConsoleView;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Stand-in for a console tab when running without UI: everything printed goes to stdout, one
+ * line at a time, prefixed with the tab title so interleaved classes stay readable in CI logs.
+ *
+ * A dynamic proxy rather than a {@link ConsoleView} implementation: only {@code print} matters
+ * here and the interface grows with every platform release. A last line without a newline is
+ * printed on {@code dispose}, see {@link JAIPilotConsoleManager#finish}.
+ */
+final class HeadlessConsole implements InvocationHandler {
+
+    private static final Object STDOUT_LOCK = new Object();
+
+    private final String title;
+    private final StringBuilder pending = new StringBuilder();
+
+    private HeadlessConsole(String title) {
+        this.title = title;
+    }
+
+    static ConsoleView create(String title) {
+        return (ConsoleView) Proxy.newProxyInstance(
+                ConsoleView.class.getClassLoader(), new Class<?>[]{ConsoleView.class}, new HeadlessConsole(title));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "print":
+                if (args != null && args.length > 0 && args[0] instanceof String text) write(text);
+                return null;
+            case "dispose":
+                flush();
+                return null;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "HeadlessConsole[" + title + "]";
+            default:
+                return defaultValue(method.getReturnType());
+        }
+    }
+
+    private synchronized void write(String text) {
+        pending.append(text);
+        int newline;
+        while ((newline = pending.indexOf("\n")) >= 0) {
+            String line = pending.substring(0, newline);
+            pending.delete(0, newline + 1);
+            println(line);
+        }
+    }
+
+    private synchronized void flush() {
+        if (pending.isEmpty()) return;
+        println(pending.toString());
+        pending.setLength(0);
+    }
+
+    private void println(String line) {
+        synchronized (STDOUT_LOCK) {
+            System.out.println("[" + title + "] " + line);
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        return 0d;
+    }
+}
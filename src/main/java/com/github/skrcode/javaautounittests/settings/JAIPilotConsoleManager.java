@@ -17,6 +17,7 @@ import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentFactory;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.*;
@@ -26,9 +27,12 @@ public final class JAIPilotConsoleManager {
     private JAIPilotConsoleManager() {}
 
     /**
-     * Opens a new console tab with a cancel button wired to the given ProgressIndicator.
+     * Opens a new console tab with a cancel button wired to the given run.
+     * Without UI (headless batch) the console writes to stdout instead.
      */
-    public static ConsoleView openNewConsole(Project project, String title) {
+    public static ConsoleView openNewConsole(Project project, String title, @Nullable GenerationRun run) {
+        if (ApplicationManager.getApplication().isHeadlessEnvironment()) return HeadlessConsole.create(title);
+
         ToolWindow toolWindow = ToolWindowManager.getInstance(project).getToolWindow("JAIPilot Console");
         if (toolWindow == null) return null;
 
@@ -48,15 +52,25 @@ public final class JAIPilotConsoleManager {
         AnAction cancelAction = new AnAction("Cancel JAIPilot", "Stop test generation", AllIcons.Actions.Suspend) {
             @Override
             public void actionPerformed(@NotNull AnActionEvent e) {
-//                if (indicator != null && !indicator.isCanceled()) {
-//                    indicator.cancel(); // ✅ cancels the background task
-//                    consoleView.print("[JAIPilot] ❌ Cancel requested by user\n", ConsoleViewContentType.ERROR_OUTPUT);
-//                }
+                if (run != null && !run.isCancelled()) {
+                    run.cancel(); // ✅ cancels only this class, other runs keep going
+                    consoleView.print("[JAIPilot] ❌ Cancel requested by user\n", ConsoleViewContentType.ERROR_OUTPUT);
+                }
+            }
+
+            @Override
+            public void update(@NotNull AnActionEvent e) {
+                e.getPresentation().setEnabled(run != null && !run.isCancelled() && !run.isFinished());
+            }
+
+            @Override
+            public @NotNull ActionUpdateThread getActionUpdateThread() {
+                return ActionUpdateThread.EDT;
             }
         };
 
         DefaultActionGroup actionGroup = new DefaultActionGroup();
-//        actionGroup.add(cancelAction);
+        if (run != null) actionGroup.add(cancelAction);
         ActionToolbar toolbar = ActionManager.getInstance()
                 .createActionToolbar("JAIPilotConsoleToolbar", actionGroup, false);
 
@@ -74,6 +88,15 @@ public final class JAIPilotConsoleManager {
         return consoleView;
     }
 
+    /**
+     * Ends a run's output. Without UI this writes out a last line that has no newline; a console
+     * tab stays open for reading. Queued after the run's pending prints, like {@link #print}.
+     */
+    public static void finish(ConsoleView consoleView) {
+        if (consoleView == null || !ApplicationManager.getApplication().isHeadlessEnvironment()) return;
+        ApplicationManager.getApplication().invokeLater(consoleView::dispose);
+    }
+
     public static void print(ConsoleView consoleView, String text, ConsoleViewContentType type) {
         if (consoleView == null) return;
         ApplicationManager.getApplication().invokeLater(() -> {
@@ -4,18 +4,34 @@
 
 package com.github.skrcode.javaautounittests.settings;
 
+import com.intellij.openapi.progress.ProgressIndicator;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the generation runs currently in flight. Each run owns its own cancellation
+ * state – see {@link GenerationRun}.
+ */
 public final class JAIPilotExecutionManager {
-    private static volatile boolean cancelled = false;
+    private static final Set<GenerationRun> ACTIVE = ConcurrentHashMap.newKeySet();
+
+    private JAIPilotExecutionManager() {}
 
-    public static void cancel() {
-        cancelled = true;
+    public static GenerationRun start(@NotNull String name, @NotNull ProgressIndicator parent) {
+        GenerationRun run = new GenerationRun(name, parent);
+        ACTIVE.add(run);
+        return run;
     }
 
-    public static boolean isCancelled() {
-        return cancelled;
+    public static void finish(@NotNull GenerationRun run) {
+        run.finish();
+        ACTIVE.remove(run);
     }
 
-    public static void reset() {
-        cancelled = false;
+    public static List<GenerationRun> activeRuns() {
+        return List.copyOf(ACTIVE);
     }
 }
@@ -0,0 +1,117 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests.settings;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The one HTTP client for all backend traffic (LLM jobs, quota, feedback, telemetry).
+ *
+ * Sharing it keeps connections alive between attempts and polls, and with HTTP/2 the requests of
+ * all parallel classes are multiplexed over a single TLS connection per host instead of paying a
+ * handshake each. Response handling runs on a small dedicated pool so it never competes with
+ * PSI and build work on the shared application pool.
+ */
+@Service(Service.Level.APP)
+public final class JAIPilotHttpService {
+
+    private static final Logger LOG = Logger.getInstance(JAIPilotHttpService.class);
+
+    public static final String FUNCTIONS_URL = "https://otxfylhjrlaesjagfhfi.supabase.co/functions/v1/";
+
+    /** Below the server's idle timeout, so a warm-up within this window would only be a wasted request. */
+    private static final long WARM_FOR_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private static volatile String override;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(30))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(AppExecutorUtil.createBoundedApplicationPoolExecutor("JAIPilot HTTP", 4))
+            .build();
+
+    private final BackendCircuitBreaker breaker = new BackendCircuitBreaker();
+    private volatile long warmedAt;
+
+    public static JAIPilotHttpService getInstance() {
+        return ApplicationManager.getApplication().getService(JAIPilotHttpService.class);
+    }
+
+    public HttpClient client() {
+        return http;
+    }
+
+    /** Shared by all backend calls, see {@link BackendCircuitBreaker}. */
+    public BackendCircuitBreaker breaker() {
+        return breaker;
+    }
+
+    /** URI of a backend function, e.g. {@code function("fetch-quota")}. */
+    public static URI function(String name) {
+        return URI.create(baseUrl() + name);
+    }
+
+    /**
+     * Where backend functions live: a process-wide override (e.g. a headless run's fake backend),
+     * else the {@code jaipilot.backend.url} system property, else the Backend URL setting, else
+     * {@link #FUNCTIONS_URL}.
+     */
+    public static String baseUrl() {
+        String url = override;
+        if (StringUtil.isEmptyOrSpaces(url)) url = System.getProperty("jaipilot.backend.url");
+        if (StringUtil.isEmptyOrSpaces(url)) url = AISettings.getInstance().getBackendUrl();
+        if (StringUtil.isEmptyOrSpaces(url)) return FUNCTIONS_URL;
+        url = url.trim();
+        return url.endsWith("/") ? url : url + "/";
+    }
+
+    public static void overrideBaseUrl(@Nullable String url) {
+        override = url;
+    }
+
+    /** Whether requests go anywhere but the production backend. */
+    public static boolean isRedirected() {
+        return !baseUrl().equals(FUNCTIONS_URL);
+    }
+
+    /** Telemetry follows a redirected backend so offline runs stay offline. */
+    public static String telemetryEndpoint(String configured) {
+        return isRedirected() ? baseUrl() + "t" : configured;
+    }
+
+    /**
+     * Opens the TLS connection to the backend ahead of the first real request, e.g. while a batch
+     * is still ordering its classes. Fire-and-forget; any HTTP status counts as warm.
+     */
+    public void warmUp() {
+        long now = System.nanoTime();
+        if (warmedAt != 0 && now - warmedAt < WARM_FOR_NANOS) return;
+        warmedAt = now;
+
+        HttpRequest ping = HttpRequest.newBuilder(URI.create(baseUrl()))
+                .timeout(Duration.ofSeconds(10))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        http.sendAsync(ping, HttpResponse.BodyHandlers.discarding())
+                .exceptionally(t -> {
+                    warmedAt = 0;
+                    LOG.debug("JAIPilot backend warm-up failed: " + t.getMessage());
+                    return null;
+                });
+    }
+}
@@ -9,6 +9,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.skrcode.javaautounittests.DTOs.QuotaResponse;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
@@ -21,18 +22,19 @@ public class QuotaUtil {
     private static final ObjectMapper MAPPER = new ObjectMapper();
     public static QuotaResponse fetchQuota(
     ) throws Exception {
-        String baseUrl = "https://otxfylhjrlaesjagfhfi.supabase.co/functions/v1/fetch-quota";
-        String url = baseUrl + "?licenseKey=" + URLEncoder.encode(AISettings.getInstance().getState().proKey, StandardCharsets.UTF_8);
-        HttpClient http = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(30))
-                .build();
+        URI uri = JAIPilotHttpService.function("fetch-quota?licenseKey="
+                + URLEncoder.encode(AISettings.getInstance().getProKey(), StandardCharsets.UTF_8));
+        HttpClient http = JAIPilotHttpService.getInstance().client();
+        BackendCircuitBreaker breaker = JAIPilotHttpService.getInstance().breaker();
+        // Quota is informational: never wait for, or add load to, a backend that is down
+        if (breaker.isOpen()) return new QuotaResponse();
         int retries = 0;
         final int MAX_RETRIES = 5;
         long backoffMillis = 1500;
         while (true) {
             try {
                 HttpRequest req = HttpRequest.newBuilder()
-                        .uri(URI.create(url))
+                        .uri(uri)
                         .timeout(Duration.ofSeconds(20))
                         .header("Accept", "application/json")
                         .GET()
@@ -41,6 +43,7 @@ public class QuotaUtil {
                         http.send(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
 
                 int sc = resp.statusCode();
+                breaker.record(sc);
                 if (sc / 100 != 2) {
                     throw new RuntimeException("Unexpected quota fetch error: " + sc + " " + resp.body());
                 }
@@ -55,8 +58,11 @@ public class QuotaUtil {
                     out.message = json.get("message").asText();
                 return out;
             } catch (Throwable t) {
+                if (t instanceof IOException) breaker.onFailure();
                 retries++;
-                if (retries > MAX_RETRIES) {
+                // Only consult the breaker: an informational call must not spend the retry budget
+                // the generation requests need
+                if (retries > MAX_RETRIES || breaker.isOpen()) {
                     return new QuotaResponse();
                 }
                 long sleep = backoffMillis + (long) (Math.random() * 200); // jitter
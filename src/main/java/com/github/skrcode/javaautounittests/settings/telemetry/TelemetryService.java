@@ -4,6 +4,7 @@
 
 package com.github.skrcode.javaautounittests.settings.telemetry;
 
+import com.github.skrcode.javaautounittests.settings.JAIPilotHttpService;
 import com.intellij.ide.plugins.PluginManagerCore;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
@@ -20,7 +21,7 @@ import java.util.UUID;
 public final class TelemetryService {
     private static final Logger LOG = Logger.getInstance(TelemetryService.class);
 
-    private final HttpClient http = HttpClient.newHttpClient();
+    private final HttpClient http = JAIPilotHttpService.getInstance().client();
     private final String sessionId = UUID.randomUUID().toString();
 
     // resolve once and cache
@@ -57,7 +58,7 @@ public final class TelemetryService {
         TelemetrySettings s = TelemetrySettings.getInstance();
         if (!s.enabled) return;
         try {
-            String url = s.endpoint
+            String url = JAIPilotHttpService.telemetryEndpoint(s.endpoint)
                     + "?e=" + enc(event)
                     + "&s=" + enc(sessionId)
                     + "&v=" + enc(appVersion)   // include app_version
@@ -0,0 +1,120 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.BatchSharding.Strategy;
+import com.github.skrcode.javaautounittests.DTOs.BatchReport;
+import com.github.skrcode.javaautounittests.DTOs.GenerationResult;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BatchShardingTest {
+
+    private static Map<String, Integer> classes(int n) {
+        Map<String, Integer> sizes = new TreeMap<>();
+        for (int i = 0; i < n; i++) sizes.put("com.acme.C" + i, 100 + i * 37 % 500);
+        return sizes;
+    }
+
+    private static BatchReport shard(int index, int count, long durationMs, String... assigned) {
+        List<GenerationResult> results = new ArrayList<>();
+        for (String fqn : assigned) {
+            results.add(new GenerationResult(fqn, GenerationResult.Status.SUCCEEDED, 1, durationMs, null));
+        }
+        BatchReport report = BatchReport.of("acme", assigned.length, results, durationMs);
+        report.shardIndex = index;
+        report.shardCount = count;
+        report.shardStrategy = "HASH";
+        report.assigned = List.of(assigned);
+        return report;
+    }
+
+    @Test
+    public void everyClassLandsOnExactlyOneShard() {
+        Map<String, Integer> sizes = classes(50);
+        for (Strategy strategy : Strategy.values()) {
+            Set<String> seen = new HashSet<>();
+            for (int index = 0; index < 4; index++) {
+                for (String fqn : BatchSharding.assign(sizes, index, 4, strategy)) {
+                    assertTrue(strategy + " puts " + fqn + " on two shards", seen.add(fqn));
+                }
+            }
+            assertEquals(sizes.keySet(), seen);
+        }
+    }
+
+    @Test
+    public void hashShardsKeepTheirClassesWhenOthersAreAdded() {
+        Map<String, Integer> before = classes(20);
+        Map<String, Integer> after = classes(40);
+        for (int index = 0; index < 3; index++) {
+            Set<String> grown = BatchSharding.assign(after, index, 3, Strategy.HASH);
+            assertTrue(grown.containsAll(BatchSharding.assign(before, index, 3, Strategy.HASH)));
+        }
+        assertEquals(BatchSharding.hashShard("com.acme.Billing", 7), BatchSharding.hashShard("com.acme.Billing", 7));
+    }
+
+    @Test
+    public void sizeShardsPackTheBiggestClassesFirst() {
+        Map<String, Integer> sizes = Map.of("a.A", 100, "a.B", 60, "a.C", 50, "a.D", 40, "a.E", 10);
+
+        assertEquals(Set.of("a.A", "a.D"), BatchSharding.assign(sizes, 0, 2, Strategy.SIZE));
+        assertEquals(Set.of("a.B", "a.C", "a.E"), BatchSharding.assign(sizes, 1, 2, Strategy.SIZE));
+    }
+
+    @Test
+    public void equalSizesAreSplitByName() {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        sizes.put("b.B", 10);
+        sizes.put("a.A", 10);
+
+        assertEquals(Set.of("a.A"), BatchSharding.assign(sizes, 0, 2, Strategy.SIZE));
+        assertEquals(Set.of("b.B"), BatchSharding.assign(sizes, 1, 2, Strategy.SIZE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAShardOutsideTheCount() {
+        BatchSharding.select(List.of(), 3, 3, Strategy.HASH);
+    }
+
+    @Test
+    public void mergeSumsShardsAndTakesTheSlowest() {
+        BatchReport merged = BatchSharding.merge(List.of(shard(0, 2, 1_000, "a.A", "a.B"), shard(1, 2, 3_000, "a.C")));
+
+        assertEquals("acme", merged.project);
+        assertEquals(3, merged.requested);
+        assertEquals(3, merged.succeeded);
+        assertEquals(3_000, merged.durationMs);
+        assertEquals(List.of("a.A", "a.B", "a.C"), merged.assigned);
+        assertEquals(Integer.valueOf(2), merged.shardCount);
+        assertNull(merged.shardIndex);
+        assertTrue(merged.missingShards.isEmpty());
+    }
+
+    @Test
+    public void mergeListsMissingShards() {
+        BatchReport merged = BatchSharding.merge(List.of(shard(1, 3, 1_000, "a.B")));
+
+        assertEquals(List.of(0, 2), merged.missingShards);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeRejectsAShardGivenTwice() {
+        BatchSharding.merge(List.of(shard(0, 2, 1_000, "a.A"), shard(0, 2, 1_000, "a.B")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeRejectsDifferentShardCounts() {
+        BatchSharding.merge(List.of(shard(0, 2, 1_000, "a.A"), shard(1, 3, 1_000, "a.B")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeRejectsAClassOnTwoShards() {
+        BatchSharding.merge(List.of(shard(0, 2, 1_000, "a.A"), shard(1, 2, 1_000, "a.A")));
+    }
+}
@@ -0,0 +1,116 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConcurrencyControllerTest {
+
+    private final List<Integer> applied = new ArrayList<>();
+    private final List<String> decisions = new ArrayList<>();
+
+    private ConcurrencyController controller(int ceiling, boolean adaptive) {
+        return new ConcurrencyController(ceiling, adaptive, applied::add, decisions::add);
+    }
+
+    @Test
+    public void startsAtHalfTheCeiling() {
+        ConcurrencyController controller = controller(8, true);
+
+        assertEquals(4, controller.limit());
+        assertEquals(List.of(4), applied);
+    }
+
+    @Test
+    public void fixedLimitIgnoresPressure() {
+        ConcurrencyController controller = controller(8, false);
+        controller.onRemotePressure("429");
+        for (int i = 0; i < 20; i++) controller.onRemoteSuccess(1_000, 0);
+
+        assertEquals(8, controller.limit());
+        assertEquals(List.of(8), applied);
+        assertTrue(decisions.isEmpty());
+    }
+
+    @Test
+    public void singleSlotIsNeverAdaptive() {
+        ConcurrencyController controller = controller(1, true);
+        controller.onRemoteSuccess(1_000, 0);
+
+        assertEquals(1, controller.limit());
+        assertTrue(decisions.isEmpty());
+    }
+
+    @Test
+    public void growsByOneAfterAWindowOfCleanJobs() {
+        ConcurrencyController controller = controller(8, true);
+        for (int i = 0; i < 3; i++) controller.onRemoteSuccess(1_000, 0);
+        assertEquals(4, controller.limit());
+
+        controller.onRemoteSuccess(1_000, 0);
+        assertEquals(5, controller.limit());
+        assertEquals(List.of(4, 5), applied);
+    }
+
+    @Test
+    public void neverGrowsBeyondTheCeiling() {
+        ConcurrencyController controller = controller(4, true);
+        for (int i = 0; i < 50; i++) controller.onRemoteSuccess(1_000, 0);
+
+        assertEquals(4, controller.limit());
+    }
+
+    @Test
+    public void halvesOnPressureOncePerCooldown() {
+        ConcurrencyController controller = controller(16, true);
+        controller.onRemotePressure("429");
+        controller.onRemotePressure("retry after 503");
+
+        assertEquals(4, controller.limit());
+        assertEquals(List.of(8, 4), applied);
+        assertEquals(2, decisions.size()); // the start message and one decrease
+        assertTrue(decisions.get(1).contains("429"));
+    }
+
+    @Test
+    public void neverDropsBelowOne() {
+        ConcurrencyController controller = controller(2, true);
+        controller.onRemotePressure("429");
+
+        assertEquals(1, controller.limit());
+        assertEquals(List.of(1), applied);
+    }
+
+    @Test
+    public void busyBuildsHoldTheLimit() {
+        ConcurrencyController controller = controller(8, true);
+        for (int i = 0; i < 20; i++) controller.onRemoteSuccess(1_000, 2);
+
+        assertEquals(4, controller.limit());
+    }
+
+    @Test
+    public void halvesWhenMoreClassesWaitToBuildThanThereAreSlots() {
+        ConcurrencyController controller = controller(8, true);
+        controller.onRemoteSuccess(1_000, 5);
+
+        assertEquals(2, controller.limit());
+    }
+
+    @Test
+    public void halvesWhenLatencyRisesWellAboveTheBest() {
+        ConcurrencyController controller = controller(8, true);
+        controller.onRemoteSuccess(1_000, 0);
+        controller.onRemoteSuccess(10_000, 0);
+
+        assertEquals(2, controller.limit());
+        assertTrue(decisions.get(decisions.size() - 1).contains("LLM latency"));
+    }
+}
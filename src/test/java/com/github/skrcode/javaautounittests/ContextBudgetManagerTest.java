@@ -0,0 +1,110 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.ContextBudgetManager.Kind;
+import com.github.skrcode.javaautounittests.DTOs.Content;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ContextBudgetManagerTest {
+
+    /** {@code lines} lines of 100 characters, about 25 tokens each. */
+    private static Content text(String role, int lines) {
+        return new Content(role, List.of(new Content.Part(("x".repeat(99) + "\n").repeat(lines))));
+    }
+
+    private static String textOf(Content content) {
+        return content.getParts().get(0).getText();
+    }
+
+    @Test
+    public void leavesRequestsWithinBudgetAlone() {
+        ContextBudgetManager budget = new ContextBudgetManager(100_000);
+        Content cut = budget.tag(text("user", 10), Kind.CUT);
+        Content dependency = budget.tag(text("user", 200), Kind.DEPENDENCY, "a/B.java");
+
+        ContextBudgetManager.Fit fit = budget.fit(List.of(cut, dependency));
+
+        assertFalse(fit.reduced());
+        assertEquals(fit.tokensBefore(), fit.tokensAfter());
+        assertSame(dependency, fit.request().get(1));
+    }
+
+    @Test
+    public void zeroBudgetDisablesTheLimit() {
+        ContextBudgetManager budget = new ContextBudgetManager(0);
+        Content dependency = budget.tag(text("user", 1_000), Kind.DEPENDENCY);
+
+        assertFalse(budget.fit(List.of(text("user", 10), dependency)).reduced());
+    }
+
+    @Test
+    public void shortensLowestPriorityFirst() {
+        ContextBudgetManager budget = new ContextBudgetManager(6_000);
+        Content cut = budget.tag(text("user", 10), Kind.CUT);
+        Content dependency = budget.tag(text("user", 200), Kind.DEPENDENCY, "a/B.java");
+        Content errors = budget.tag(text("user", 200), Kind.ERRORS);
+
+        ContextBudgetManager.Fit fit = budget.fit(List.of(cut, dependency, errors));
+
+        assertEquals(1, fit.shortened());
+        assertEquals(0, fit.dropped());
+        assertTrue(fit.tokensAfter() <= 6_000);
+        assertSame(cut, fit.request().get(0));
+        assertTrue(textOf(fit.request().get(1)).contains("more lines left out"));
+        assertSame(errors, fit.request().get(2));
+        assertFalse(budget.wasDropped("a/B.java"));
+    }
+
+    @Test
+    public void dropsWhenShorteningIsNotEnoughButNeverTouchesTheCut() {
+        ContextBudgetManager budget = new ContextBudgetManager(300);
+        Content cut = budget.tag(text("user", 10), Kind.CUT);
+        Content dependency = budget.tag(text("user", 200), Kind.DEPENDENCY, "a/B.java");
+        Content errors = budget.tag(text("user", 200), Kind.ERRORS);
+
+        ContextBudgetManager.Fit fit = budget.fit(List.of(cut, dependency, errors));
+
+        assertEquals(0, fit.shortened()); // counted once each, as dropped
+        assertEquals(2, fit.dropped());
+        assertSame(cut, fit.request().get(0));
+        assertTrue(textOf(fit.request().get(1)).startsWith("[a/B.java left out"));
+        assertTrue(textOf(fit.request().get(1)).contains("get_file"));
+        assertTrue(budget.wasDropped("a/B.java"));
+    }
+
+    @Test
+    public void neverReducesThePlanOrTheTestSource() {
+        ContextBudgetManager budget = new ContextBudgetManager(10);
+        Content cut = budget.tag(text("user", 200), Kind.CUT);
+        Content testSource = budget.tag(text("model", 200), Kind.TEST_SOURCE);
+        Content plan = budget.tag(text("user", 200), Kind.PLAN);
+
+        ContextBudgetManager.Fit fit = budget.fit(List.of(cut, testSource, plan));
+
+        assertFalse(fit.reduced());
+        assertEquals(List.of(cut, testSource, plan), fit.request());
+        assertTrue(fit.tokensAfter() > 10);
+    }
+
+    @Test
+    public void laterAttemptsSendTheSameReducedEntries() {
+        ContextBudgetManager budget = new ContextBudgetManager(6_000);
+        Content cut = budget.tag(text("user", 10), Kind.CUT);
+        Content dependency = budget.tag(text("user", 200), Kind.DEPENDENCY);
+        Content errors = budget.tag(text("user", 200), Kind.ERRORS);
+
+        Content first = budget.fit(List.of(cut, dependency, errors)).request().get(1);
+        Content second = budget.fit(List.of(cut, dependency, errors, budget.tag(text("user", 1), Kind.ERRORS)))
+                .request().get(1);
+
+        assertNotSame(dependency, first);
+        assertSame(first, second);
+    }
+}
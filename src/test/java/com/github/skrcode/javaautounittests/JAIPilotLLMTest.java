@@ -0,0 +1,85 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JAIPilotLLMTest {
+
+    private static final String OUTPUT = "{\"content\":{\"role\":\"model\",\"parts\":[{\"text\":\"done\"}]},\"errorCode\":0}";
+
+    private static InputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void readsOutputSentAsObject() throws IOException {
+        JAIPilotLLM.JobStatus job = JAIPilotLLM.readJobStatus(json("{\"status\":\"done\",\"output\":" + OUTPUT + "}"));
+
+        assertEquals("done", job.status());
+        assertEquals("done", job.output().getContent().getParts().get(0).getText());
+        assertNull(job.partial());
+    }
+
+    @Test
+    public void readsOutputEncodedAsString() throws IOException {
+        String encoded = OUTPUT.replace("\"", "\\\"");
+        JAIPilotLLM.JobStatus job = JAIPilotLLM.readJobStatus(json("{\"status\":\"done\",\"output\":\"" + encoded + "\"}"));
+
+        assertEquals("model", job.output().getContent().getRole());
+        assertEquals(0, job.output().getErrorCode());
+    }
+
+    @Test
+    public void keepsTheMessageOfAFailedJob() throws IOException {
+        JAIPilotLLM.JobStatus job = JAIPilotLLM.readJobStatus(json("{\"status\":\"error\",\"output\":\"quota exceeded\"}"));
+
+        assertEquals("error", job.status());
+        assertNull(job.output());
+        assertEquals("quota exceeded", job.message());
+    }
+
+    @Test
+    public void readsPartialOutputAndSkipsUnknownFields() throws IOException {
+        JAIPilotLLM.JobStatus job = JAIPilotLLM.readJobStatus(json(
+                "{\"id\":\"j-1\",\"timings\":{\"queued\":[1,2,{\"x\":3}]},\"status\":\"running\","
+                        + "\"partial\":{\"skeleton\":\"class ATest {}\",\"methods\":[{\"methodName\":\"a\"}]}}"));
+
+        assertEquals("running", job.status());
+        assertNull(job.output());
+        assertEquals("class ATest {}", job.partial().get("skeleton"));
+        assertEquals(List.of(Map.of("methodName", "a")), job.partial().get("methods"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsAStatusWithoutStatus() throws IOException {
+        JAIPilotLLM.readJobStatus(json("{\"output\":" + OUTPUT + "}"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsANonObjectPayload() throws IOException {
+        JAIPilotLLM.readJobStatus(json("[]"));
+    }
+
+    @Test
+    public void readsEveryJobOfABatchedFetch() throws IOException {
+        Map<String, JAIPilotLLM.JobStatus> jobs = JAIPilotLLM.readJobStatuses(json(
+                "{\"served\":2,\"jobs\":{\"a\":{\"status\":\"done\",\"output\":" + OUTPUT + "},"
+                        + "\"b\":{\"status\":\"running\"},\"c\":null}}"));
+
+        assertEquals(List.of("a", "b"), List.copyOf(jobs.keySet()));
+        assertNotNull(jobs.get("a").output());
+        assertEquals("running", jobs.get("b").status());
+    }
+}
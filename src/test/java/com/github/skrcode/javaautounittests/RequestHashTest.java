@@ -0,0 +1,66 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.skrcode.javaautounittests.DTOs.Content;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class RequestHashTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static List<Content> conversation() {
+        Map<String, Object> args = new LinkedHashMap<>();
+        args.put("testPlan", "Cover the happy path");
+        args.put("priority", 2);
+        args.put("weight", 0.5);
+        args.put("tags", List.of("a", "b"));
+        Content.Part call = new Content.Part(new Content.FunctionCall("plan_test_changes", args));
+        call.setThoughtSignature("sig");
+        return List.of(
+                new Content("user", List.of(new Content.Part("package a;\n\nclass Cut { int x() { return 1; } }"))),
+                new Content("model", List.of(call)),
+                new Content("user", List.of(new Content.Part("Compilation failed: ünïcödé \"quoted\""))));
+    }
+
+    /** What the fake backend receives: the contents as the client serialized them into the job request. */
+    private static JsonNode overTheWire(List<Content> contents) throws IOException {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("attemptNumber", 3);
+        request.put("contents", contents);
+        request.put("sessionId", "s-1");
+        return MAPPER.readTree(MAPPER.writeValueAsBytes(request)).get("contents");
+    }
+
+    @Test
+    public void cacheAndFakeBackendAgreeOnTheKey() throws IOException {
+        List<Content> contents = conversation();
+        assertEquals(LlmResponseCache.key(contents, 3), RequestHash.of(overTheWire(contents), 3));
+    }
+
+    @Test
+    public void equalRequestsShareTheKey() throws IOException {
+        String key = RequestHash.of(conversation(), 1);
+        assertEquals(key, RequestHash.of(conversation(), 1));
+        assertEquals(64, key.length());
+    }
+
+    @Test
+    public void attemptAndContentsChangeTheKey() throws IOException {
+        List<Content> contents = conversation();
+        assertNotEquals(RequestHash.of(contents, 1), RequestHash.of(contents, 2));
+        assertNotEquals(RequestHash.of(contents, 1), RequestHash.of(contents.subList(0, 2), 1));
+    }
+}
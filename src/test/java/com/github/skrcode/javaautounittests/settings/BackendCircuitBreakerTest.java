@@ -0,0 +1,115 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests.settings;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class BackendCircuitBreakerTest {
+
+    private long now = 1_000_000;
+    private final BackendCircuitBreaker breaker = new BackendCircuitBreaker(() -> now);
+
+    private void open() {
+        for (int i = 0; i < 5; i++) breaker.onFailure();
+        assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    public void closedBreakerLetsCallsThrough() {
+        CompletableFuture<Boolean> permit = breaker.permit();
+
+        assertFalse(breaker.isOpen());
+        assertTrue(permit.isDone());
+        assertFalse(permit.join());
+    }
+
+    @Test
+    public void opensAfterFiveFailuresInARow() {
+        for (int i = 0; i < 4; i++) breaker.onFailure();
+        breaker.onSuccess();
+        for (int i = 0; i < 4; i++) breaker.onFailure();
+        assertFalse(breaker.isOpen());
+
+        breaker.onFailure();
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.permit().isDone());
+    }
+
+    @Test
+    public void countsRateLimitsAndServerErrorsAsFailures() {
+        for (int i = 0; i < 4; i++) breaker.record(i % 2 == 0 ? 429 : 503);
+        breaker.record(404); // the backend answered
+        for (int i = 0; i < 4; i++) breaker.record(500);
+        assertFalse(breaker.isOpen());
+
+        breaker.record(502);
+        assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    public void sendsOneProbeAfterTheCooldown() {
+        open();
+        now += 14_000;
+        assertFalse(breaker.permit().isDone());
+
+        now += 1_000;
+        CompletableFuture<Boolean> probe = breaker.permit();
+        CompletableFuture<Boolean> waiting = breaker.permit();
+        assertTrue(probe.join());
+        assertFalse(waiting.isDone());
+
+        breaker.onSuccess();
+        assertFalse(breaker.isOpen());
+        assertFalse(waiting.join());
+    }
+
+    @Test
+    public void failedProbeDoublesTheCooldown() {
+        open();
+        now += 15_000;
+        assertTrue(breaker.permit().join());
+
+        breaker.onFailure();
+        assertTrue(breaker.isOpen());
+        now += 15_000;
+        assertFalse(breaker.permit().isDone());
+        now += 15_000;
+        assertTrue(breaker.permit().join());
+    }
+
+    @Test
+    public void abandonedProbePassesToAParkedCall() {
+        open();
+        now += 15_000;
+        assertTrue(breaker.permit().join());
+        CompletableFuture<Boolean> waiting = breaker.permit();
+
+        breaker.abandonProbe();
+
+        assertTrue(waiting.join());
+        assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    public void emptyRetryBudgetOpensTheBreaker() {
+        for (int i = 0; i < 10; i++) assertTrue(breaker.tryRetry());
+
+        assertFalse(breaker.tryRetry());
+        assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    public void successesRefillTheRetryBudget() {
+        for (int i = 0; i < 10; i++) breaker.tryRetry();
+        for (int i = 0; i < 5; i++) breaker.onSuccess();
+
+        assertTrue(breaker.tryRetry());
+        assertFalse(breaker.tryRetry());
+    }
+}
@@ -0,0 +1,93 @@
+// Copyright © 2025 Suraj Rajan / JAIPilot
+// This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+// If a copy of the MPL was not distributed with this file, you can obtain one at https://mozilla.org/MPL/2.0/.
+
+package com.github.skrcode.javaautounittests.settings;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DiskLruStoreTest {
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("disk-lru-store");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void storesReplacesAndDeletes() throws IOException {
+        DiskLruStore store = new DiskLruStore(dir, ".txt", () -> Long.MAX_VALUE);
+        assertNull(store.getString("a"));
+
+        store.putString("a", "first");
+        store.putString("a", "second");
+        assertEquals("second", store.getString("a"));
+
+        assertTrue(store.delete("a"));
+        assertFalse(store.delete("a"));
+        assertNull(store.getString("a"));
+    }
+
+    @Test
+    public void leavesNoTemporaryFilesBehind() throws IOException {
+        DiskLruStore store = new DiskLruStore(dir, ".txt", () -> Long.MAX_VALUE);
+        store.putString("a", "content");
+        try {
+            store.put("b", file -> {
+                throw new IOException("writer failed");
+            });
+            fail("expected the writer's exception");
+        } catch (IOException expected) {
+            // the entry is not created
+        }
+        assertNull(store.get("b"));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBeyondTheCap() throws IOException {
+        DiskLruStore store = new DiskLruStore(dir, ".txt", () -> 25);
+        store.putString("old", "0123456789");
+        store.putString("used", "0123456789");
+        Files.setLastModifiedTime(dir.resolve("old.txt"), FileTime.fromMillis(1_000));
+        Files.setLastModifiedTime(dir.resolve("used.txt"), FileTime.fromMillis(2_000));
+        assertNotNull(store.get("used")); // now the most recently used
+
+        store.putString("new", "0123456789");
+
+        assertNull(store.get("old"));
+        assertNotNull(store.get("used"));
+        assertNotNull(store.get("new"));
+    }
+
+    @Test
+    public void ignoresFilesWithOtherSuffixes() throws IOException {
+        Files.writeString(dir.resolve("foreign.json"), "x".repeat(100));
+        DiskLruStore store = new DiskLruStore(dir, ".txt", () -> 50);
+        store.putString("a", "0123456789");
+
+        assertNotNull(store.get("a"));
+        assertTrue(Files.exists(dir.resolve("foreign.json")));
+    }
+}